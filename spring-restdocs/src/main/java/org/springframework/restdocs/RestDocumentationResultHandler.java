@@ -24,14 +24,26 @@ import static org.springframework.restdocs.payload.PayloadDocumentation.document
 import static org.springframework.restdocs.payload.PayloadDocumentation.documentResponseFields;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.restdocs.config.DocumentationConfiguration;
+import org.springframework.restdocs.config.RestDocumentationContext;
 import org.springframework.restdocs.hypermedia.HypermediaDocumentation;
 import org.springframework.restdocs.hypermedia.LinkDescriptor;
 import org.springframework.restdocs.hypermedia.LinkExtractor;
 import org.springframework.restdocs.hypermedia.LinkExtractors;
 import org.springframework.restdocs.payload.FieldDescriptor;
 import org.springframework.restdocs.payload.PayloadDocumentation;
+import org.springframework.restdocs.util.PayloadCache;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultHandler;
 
@@ -59,9 +71,120 @@ public class RestDocumentationResultHandler implements ResultHandler {
 
 	@Override
 	public void handle(MvcResult result) throws Exception {
-		for (ResultHandler delegate : this.delegates) {
-			delegate.handle(result);
+		DocumentationConfiguration configuration = DocumentationConfiguration.get(result);
+		PayloadCache.begin(result, configuration.getJsonSupport());
+		try {
+			Executor executor = configuration.getHandlerExecutor();
+			if (executor == null || this.delegates.size() < 2) {
+				for (ResultHandler delegate : this.delegates) {
+					delegate.handle(result);
+				}
+			}
+			else {
+				handleConcurrently(result, executor);
+			}
 		}
+		finally {
+			PayloadCache.end(result);
+		}
+	}
+
+	private void handleConcurrently(final MvcResult result, Executor executor)
+			throws Exception {
+		RestDocumentationContext context = RestDocumentationContext.get(result);
+		final AtomicBoolean abandoned = new AtomicBoolean();
+		List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+		for (final ResultHandler delegate : this.delegates) {
+			Callable<Void> handling = new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					if (!abandoned.get()) {
+						delegate.handle(result);
+					}
+					return null;
+				}
+
+			};
+			tasks.add(new FutureTask<Void>(context == null ? handling : context
+					.wrap(handling)));
+		}
+		for (FutureTask<Void> task : tasks.subList(1, tasks.size())) {
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.run();
+			}
+		}
+		tasks.get(0).run();
+		Map<ResultHandler, Throwable> failures = new LinkedHashMap<ResultHandler, Throwable>();
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				tasks.get(i).get();
+			}
+			catch (ExecutionException ex) {
+				failures.put(this.delegates.get(i), ex.getCause());
+			}
+			catch (InterruptedException ex) {
+				abandon(tasks, abandoned);
+				Thread.currentThread().interrupt();
+				throw ex;
+			}
+		}
+		if (failures.size() == 1) {
+			rethrow(failures.values().iterator().next());
+		}
+		if (failures.size() > 1) {
+			throw createFailure(failures);
+		}
+	}
+
+	/**
+	 * Abandons the given {@code tasks}, waiting for any that are running to complete so
+	 * that none of them is still using the result once its handling has ended.
+	 */
+	private void abandon(List<FutureTask<Void>> tasks, AtomicBoolean abandoned) {
+		abandoned.set(true);
+		boolean interrupted = false;
+		for (FutureTask<Void> task : tasks) {
+			task.run();
+			while (!task.isDone()) {
+				try {
+					task.get();
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+				catch (ExecutionException ex) {
+					// Abandoned, so the failure is not reported
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void rethrow(Throwable failure) throws Exception {
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw (Exception) failure;
+	}
+
+	private AssertionError createFailure(Map<ResultHandler, Throwable> failures) {
+		StringBuilder message = new StringBuilder(String.format(
+				"Documentation failed in %d handlers:", failures.size()));
+		for (Entry<ResultHandler, Throwable> failure : failures.entrySet()) {
+			message.append(String.format("%n%s: %s", failure.getKey(),
+					failure.getValue()));
+		}
+		AssertionError error = new AssertionError(message.toString());
+		for (Throwable cause : failures.values()) {
+			error.addSuppressed(cause);
+		}
+		return error;
 	}
 
 	/**
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.config;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.restdocs.snippet.FileSystemSnippetStore;
+import org.springframework.restdocs.snippet.SnippetStore;
+import org.springframework.restdocs.util.JsonSupport;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * The configuration that is used when documenting a RESTful API. The configuration is
+ * built by a {@link RestDocumentationConfigurer} and made available to the result
+ * handlers as an attribute of each request that is performed.
+ *
+ * @author Andy Wilkinson
+ * @see RestDocumentationConfigurer
+ */
+public class DocumentationConfiguration {
+
+	/**
+	 * The default number of characters of a payload's undocumented portions that are held
+	 * in memory
+	 * @see #getPayloadMemoryThreshold()
+	 */
+	public static final int DEFAULT_PAYLOAD_MEMORY_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The default maximum length of the report of a payload's undocumented portions
+	 * @see #getUndocumentedPayloadReportLimit()
+	 */
+	public static final int DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT = 16 * 1024;
+
+	private static final String ATTRIBUTE_NAME = DocumentationConfiguration.class
+			.getName();
+
+	private static final SnippetStore DEFAULT_SNIPPET_STORE = new FileSystemSnippetStore();
+
+	private static final DocumentationConfiguration DEFAULT_CONFIGURATION = new DocumentationConfiguration();
+
+	private int payloadMemoryThreshold = DEFAULT_PAYLOAD_MEMORY_THRESHOLD;
+
+	private int undocumentedPayloadReportLimit = DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT;
+
+	private JsonSupport jsonSupport = JsonSupport.getDefault();
+
+	private boolean asynchronousOutput;
+
+	private SnippetStore snippetStore = DEFAULT_SNIPPET_STORE;
+
+	private Executor handlerExecutor;
+
+	DocumentationConfiguration() {
+
+	}
+
+	/**
+	 * Returns the number of characters of a payload's undocumented portions that are held
+	 * in memory. Beyond this threshold, the undocumented portions are written to a
+	 * temporary file instead. The threshold does not apply to the payload itself, a
+	 * snapshot of which is always held in memory while a result is being documented.
+	 *
+	 * @return the threshold
+	 */
+	public int getPayloadMemoryThreshold() {
+		return this.payloadMemoryThreshold;
+	}
+
+	void setPayloadMemoryThreshold(int payloadMemoryThreshold) {
+		this.payloadMemoryThreshold = payloadMemoryThreshold;
+	}
+
+	/**
+	 * Returns the maximum number of characters of a payload's undocumented portions that
+	 * are included in a failure message. Longer reports are truncated.
+	 *
+	 * @return the limit
+	 */
+	public int getUndocumentedPayloadReportLimit() {
+		return this.undocumentedPayloadReportLimit;
+	}
+
+	void setUndocumentedPayloadReportLimit(int undocumentedPayloadReportLimit) {
+		this.undocumentedPayloadReportLimit = undocumentedPayloadReportLimit;
+	}
+
+	/**
+	 * Returns the {@link JsonSupport} that is used to read and write JSON.
+	 *
+	 * @return the JSON support
+	 */
+	public JsonSupport getJsonSupport() {
+		return this.jsonSupport;
+	}
+
+	void setJsonSupport(JsonSupport jsonSupport) {
+		this.jsonSupport = jsonSupport;
+	}
+
+	/**
+	 * Returns whether or not snippets are written asynchronously, rather than on the
+	 * thread that is documenting the result.
+	 *
+	 * @return {@code true} if snippets are written asynchronously
+	 */
+	public boolean isAsynchronousOutput() {
+		return this.asynchronousOutput;
+	}
+
+	void setAsynchronousOutput(boolean asynchronousOutput) {
+		this.asynchronousOutput = asynchronousOutput;
+	}
+
+	/**
+	 * Returns the {@link SnippetStore} in which snippets are stored. By default, snippets
+	 * are written to the file system.
+	 *
+	 * @return the snippet store
+	 */
+	public SnippetStore getSnippetStore() {
+		return this.snippetStore;
+	}
+
+	void setSnippetStore(SnippetStore snippetStore) {
+		this.snippetStore = snippetStore;
+	}
+
+	/**
+	 * Returns the {@link Executor} on which the handlers that document a result are run
+	 * concurrently, or {@code null} if they are run one after another on the thread that
+	 * documents the result.
+	 *
+	 * @return the executor or {@code null}
+	 */
+	public Executor getHandlerExecutor() {
+		return this.handlerExecutor;
+	}
+
+	void setHandlerExecutor(Executor handlerExecutor) {
+		this.handlerExecutor = handlerExecutor;
+	}
+
+	void applyTo(MockHttpServletRequest request) {
+		request.setAttribute(ATTRIBUTE_NAME, this);
+	}
+
+	/**
+	 * Returns the configuration that applies to the given {@code result}. If the result's
+	 * request was not configured by a {@link RestDocumentationConfigurer} the default
+	 * configuration is returned.
+	 *
+	 * @param result the result
+	 * @return the configuration, never {@code null}
+	 */
+	public static DocumentationConfiguration get(MvcResult result) {
+		Object configuration = result.getRequest() == null ? null : result.getRequest()
+				.getAttribute(ATTRIBUTE_NAME);
+		if (configuration instanceof DocumentationConfiguration) {
+			return (DocumentationConfiguration) configuration;
+		}
+		return DEFAULT_CONFIGURATION;
+	}
+
+}
@@ -16,14 +16,31 @@
 
 package org.springframework.restdocs.config;
 
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.restdocs.snippet.ArchiveSnippetStore;
+import org.springframework.restdocs.snippet.BatchingSnippetStore;
+import org.springframework.restdocs.snippet.JournalSnippetStore;
+import org.springframework.restdocs.snippet.SnippetArchive;
+import org.springframework.restdocs.snippet.SnippetJournal;
+import org.springframework.restdocs.snippet.SnippetStaging;
+import org.springframework.restdocs.snippet.SnippetStore;
+import org.springframework.restdocs.snippet.StagingSnippetStore;
+import org.springframework.restdocs.util.JsonSupport;
+import org.springframework.restdocs.util.VirtualThreads;
 import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.test.web.servlet.setup.ConfigurableMockMvcBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcConfigurer;
 import org.springframework.test.web.servlet.setup.MockMvcConfigurerAdapter;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.WebApplicationContext;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * A {@link MockMvcConfigurer} that can be used to configure the documentation
  * 
@@ -57,6 +74,8 @@ public class RestDocumentationConfigurer extends MockMvcConfigurerAdapter {
 
 	private int port = DEFAULT_PORT;
 
+	private final DocumentationConfiguration configuration = new DocumentationConfiguration();
+
 	/**
 	 * Configures any documented URIs to use the given {@code scheme}. The default is
 	 * {@code http}.
@@ -93,6 +112,187 @@ public class RestDocumentationConfigurer extends MockMvcConfigurerAdapter {
 		return this;
 	}
 
+	/**
+	 * Configures the number of characters of a payload's undocumented portions that are
+	 * held in memory while its fields are being validated. Beyond this threshold, the
+	 * undocumented portions are written to a temporary file that is deleted once
+	 * validation is complete, unless it is referred to by a validation failure. The
+	 * threshold does not apply to the payload itself, which is always held in memory. The
+	 * default is {@value DocumentationConfiguration#DEFAULT_PAYLOAD_MEMORY_THRESHOLD}.
+	 *
+	 * @param threshold The threshold in characters
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withPayloadMemoryThreshold(int threshold) {
+		Assert.isTrue(threshold >= 0, "Threshold must not be negative");
+		this.configuration.setPayloadMemoryThreshold(threshold);
+		return this;
+	}
+
+	/**
+	 * Configures the maximum number of characters of a payload's undocumented portions
+	 * that are included in the message of a failure. Longer reports are truncated. The
+	 * default is
+	 * {@value DocumentationConfiguration#DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT}.
+	 *
+	 * @param limit The limit in characters
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withUndocumentedPayloadReportLimit(int limit) {
+		Assert.isTrue(limit >= 0, "Limit must not be negative");
+		this.configuration.setUndocumentedPayloadReportLimit(limit);
+		return this;
+	}
+
+	/**
+	 * Configures the {@code ObjectMapper} that is used to read and write JSON while
+	 * documenting. The mapper's configuration is captured when this method is called. By
+	 * default, a shared mapper with Jackson's default configuration is used.
+	 *
+	 * @param objectMapper The object mapper
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withObjectMapper(ObjectMapper objectMapper) {
+		Assert.notNull(objectMapper, "ObjectMapper must not be null");
+		this.configuration.setJsonSupport(new JsonSupport(objectMapper));
+		return this;
+	}
+
+	/**
+	 * Configures snippets to be written asynchronously. Snippets are still rendered on
+	 * the thread that documents a result but are then written to disk by a background
+	 * thread, or by a virtual thread for each snippet on Java 21 or later. The number of
+	 * snippets that can be waiting to be written is bounded and, once the bound is
+	 * reached, documenting a result waits for the backlog to shrink.
+	 * <p>
+	 * The writes are awaited, and any failure is reported, by
+	 * {@link RestDocumentationTestExecutionListener} at the end of the test method, or
+	 * test class, that produced them. It must be registered when using asynchronous
+	 * output.
+	 *
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withAsynchronousOutput() {
+		this.configuration.setAsynchronousOutput(true);
+		return this;
+	}
+
+	/**
+	 * Configures the {@link SnippetStore} in which snippets are stored. By default,
+	 * snippets are written to the file system.
+	 *
+	 * @param snippetStore The snippet store
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withSnippetStore(SnippetStore snippetStore) {
+		Assert.notNull(snippetStore, "SnippetStore must not be null");
+		this.configuration.setSnippetStore(snippetStore);
+		return this;
+	}
+
+	/**
+	 * Configures snippets to be written as entries of a zip archive rather than as
+	 * individual files. Each entry is named using the snippet's path relative to the
+	 * configured output directory. Snippets with an absolute output directory are still
+	 * written as individual files.
+	 * <p>
+	 * Each JVM streams its snippets into its own part of the archive, which is completed
+	 * when the JVM exits. The archive should be {@link SnippetArchive#clean(File)
+	 * cleaned} before the JVMs are started. Once every JVM that documents the API has
+	 * exited, the parts can be {@link SnippetArchive#merge(File) merged} into the archive
+	 * and the archive can be {@link SnippetArchive#extract(File, File) extracted} for
+	 * inclusion by Asciidoctor.
+	 *
+	 * @param archive The archive
+	 * @return {@code this}
+	 * @see ArchiveSnippetStore
+	 */
+	public RestDocumentationConfigurer withArchiveOutput(File archive) {
+		return withSnippetStore(new ArchiveSnippetStore(archive));
+	}
+
+	/**
+	 * Configures snippets to be appended to a memory-mapped journal rather than written
+	 * as individual files, minimizing the cost of writing a snippet. Snippets with an
+	 * absolute output directory are still written as individual files.
+	 * <p>
+	 * Each JVM appends its snippets to its own part of the journal. Once every JVM that
+	 * documents the API has exited, the journal must be
+	 * {@link SnippetJournal#extract(File, File) extracted} for inclusion by Asciidoctor.
+	 *
+	 * @param journal The journal
+	 * @return {@code this}
+	 * @see JournalSnippetStore
+	 */
+	public RestDocumentationConfigurer withJournalOutput(File journal) {
+		return withSnippetStore(new JournalSnippetStore(journal));
+	}
+
+	/**
+	 * Configures snippets to be staged in a directory for each JVM rather than written
+	 * directly to the output directory, so that the forks of a test run that document
+	 * the API in parallel do not overwrite one another's snippets. Snippets with an
+	 * absolute output directory are still written directly.
+	 * <p>
+	 * Each JVM records the snippets that it stages in its own manifest. The staging
+	 * directory should be {@link SnippetStaging#clean(File) cleaned} before the JVMs are
+	 * started and, once every JVM has exited, the staged snippets must be
+	 * {@link SnippetStaging#merge(File, File) merged} into the output directory.
+	 *
+	 * @param stagingDirectory The staging directory
+	 * @return {@code this}
+	 * @see StagingSnippetStore
+	 */
+	public RestDocumentationConfigurer withStagedOutput(File stagingDirectory) {
+		return withSnippetStore(new StagingSnippetStore(stagingDirectory));
+	}
+
+	/**
+	 * Configures snippets to be held in memory and then stored in a single batch when the
+	 * test class that produced them ends or when the snippets that are being held exceed
+	 * {@value BatchingSnippetStore#DEFAULT_CAPACITY} characters. The batch is stored in
+	 * the {@link SnippetStore} that has been configured so far.
+	 * <p>
+	 * {@link RestDocumentationTestExecutionListener} must be registered when using
+	 * batched output.
+	 *
+	 * @return {@code this}
+	 * @see BatchingSnippetStore
+	 */
+	public RestDocumentationConfigurer withBatchedOutput() {
+		return withSnippetStore(new BatchingSnippetStore(
+				this.configuration.getSnippetStore()));
+	}
+
+	/**
+	 * Configures the handlers that document a result to run concurrently. On Java 21 or
+	 * later, each handler runs on a new virtual thread. On earlier versions, the handlers
+	 * run on a shared {@link ForkJoinPool} with a thread for each available processor.
+	 *
+	 * @return {@code this}
+	 * @see #withConcurrentHandlers(Executor)
+	 */
+	public RestDocumentationConfigurer withConcurrentHandlers() {
+		return withConcurrentHandlers(DefaultHandlerExecutor.INSTANCE);
+	}
+
+	/**
+	 * Configures the handlers that document a result, such as those that document its
+	 * request, its response and their fields, to run concurrently on the given
+	 * {@code executor}. One of the handlers runs on the thread that documents the result
+	 * and that thread waits for the others to complete. When more than one of the
+	 * handlers fails, the failures are reported together in a single
+	 * {@link AssertionError}.
+	 *
+	 * @param executor The executor
+	 * @return {@code this}
+	 */
+	public RestDocumentationConfigurer withConcurrentHandlers(Executor executor) {
+		Assert.notNull(executor, "Executor must not be null");
+		this.configuration.setHandlerExecutor(executor);
+		return this;
+	}
+
 	@Override
 	public RequestPostProcessor beforeMockMvcCreated(
 			ConfigurableMockMvcBuilder<?> builder, WebApplicationContext context) {
@@ -104,11 +304,12 @@ public class RestDocumentationConfigurer extends MockMvcConfigurerAdapter {
 				RestDocumentationContext currentContext = RestDocumentationContext
 						.currentContext();
 				if (currentContext != null) {
-					currentContext.getAndIncrementStepCount();
+					currentContext.bindTo(request);
 				}
 				request.setScheme(RestDocumentationConfigurer.this.scheme);
 				request.setServerPort(RestDocumentationConfigurer.this.port);
 				request.setServerName(RestDocumentationConfigurer.this.host);
+				RestDocumentationConfigurer.this.configuration.applyTo(request);
 				configureContentLengthHeaderIfAppropriate(request);
 				return request;
 			}
@@ -125,4 +326,16 @@ public class RestDocumentationConfigurer extends MockMvcConfigurerAdapter {
 		};
 	}
 
+	/**
+	 * Holder for the executor that is used when concurrent handlers are configured
+	 * without an executor. The executor is only created when it is first used. Its
+	 * threads are daemon threads so it does not prevent the JVM from exiting.
+	 */
+	private static final class DefaultHandlerExecutor {
+
+		private static final Executor INSTANCE = VirtualThreads.isAvailable() ? VirtualThreads
+				.newExecutor() : new ForkJoinPool();
+
+	}
+
 }
@@ -16,47 +16,157 @@
 
 package org.springframework.restdocs.config;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MvcResult;
+
 /**
  * {@code RestDocumentationContext} encapsulates the context in which the documentation of
  * a RESTful API is being performed.
+ * <p>
+ * A context is established for the thread that runs each test method and is not
+ * inherited by any threads that it creates. When a request is performed, the context is
+ * bound to the request along with the request's step so that a result can be documented
+ * using the {@link #get(MvcResult) context in which it was produced} regardless of the
+ * thread that documents it. Tests that run in parallel therefore produce the same
+ * snippets as they would when run serially.
+ * <p>
+ * A test that performs requests concurrently from threads of its own can make its
+ * context available to them by {@link #wrap(Callable) wrapping} the tasks that the
+ * threads run. Each request is then allocated a step of its own and its snippets are
+ * written independently of those of the other requests.
+ * <p>
+ * Each test class also has a context of its own. Writes and deferred output that are
+ * registered in the context of a test class, or of one of its test methods, are
+ * completed when that test class ends. Anything that is not completed by the end of a
+ * test class, including anything that was registered without a context, is completed
+ * by the {@link ShutdownSequence} when the JVM shuts down, before the files to which
+ * snippets are written are completed.
  * 
  * @author Andy Wilkinson
  */
 public class RestDocumentationContext {
 
-	private static final ThreadLocal<RestDocumentationContext> CONTEXTS = new InheritableThreadLocal<RestDocumentationContext>();
+	private static final ThreadLocal<RestDocumentationContext> CONTEXTS = new ThreadLocal<RestDocumentationContext>();
+
+	private static final String ATTRIBUTE_NAME = RestDocumentationContext.class.getName();
+
+	private static final ConcurrentMap<Class<?>, RestDocumentationContext> CLASS_CONTEXTS = new ConcurrentHashMap<Class<?>, RestDocumentationContext>();
+
+	private static final RestDocumentationContext DETACHED = new RestDocumentationContext(
+			null, null, null);
 
-	private final AtomicInteger stepCount = new AtomicInteger(0);
+	static {
+		ShutdownSequence.register(ShutdownSequence.Phase.AWAIT_WRITES,
+				"complete documentation writes", new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						Exception failure = null;
+						for (RestDocumentationContext context : remaining()) {
+							try {
+								context.awaitPendingWrites();
+							}
+							catch (Exception ex) {
+								if (failure == null) {
+									failure = ex;
+								}
+							}
+						}
+						if (failure != null) {
+							throw failure;
+						}
+						return null;
+					}
+
+				});
+		ShutdownSequence.register(ShutdownSequence.Phase.FLUSH_DEFERRED_OUTPUT,
+				"flush deferred documentation output", new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						List<RestDocumentationContext> remaining = remaining();
+						CLASS_CONTEXTS.clear();
+						IOException failure = null;
+						for (RestDocumentationContext context : remaining) {
+							try {
+								flush(context.deferredOutput);
+							}
+							catch (IOException ex) {
+								if (failure == null) {
+									failure = ex;
+								}
+							}
+						}
+						if (failure != null) {
+							throw failure;
+						}
+						return null;
+					}
+
+				});
+	}
+
+	private final AtomicInteger stepCount;
+
+	private final List<Future<?>> pendingWrites;
+
+	private final Set<Flushable> deferredOutput;
 
 	private final Method testMethod;
 
-	private RestDocumentationContext() {
-		this(null);
+	private final RestDocumentationContext previous;
+
+	private RestDocumentationContext(Method testMethod, Set<Flushable> deferredOutput,
+			RestDocumentationContext previous) {
+		this(testMethod, new AtomicInteger(0), new ArrayList<Future<?>>(),
+				deferredOutput == null ? newOutputSet() : deferredOutput, previous);
 	}
 
-	private RestDocumentationContext(Method testMethod) {
+	private RestDocumentationContext(Method testMethod, AtomicInteger stepCount,
+			List<Future<?>> pendingWrites, Set<Flushable> deferredOutput,
+			RestDocumentationContext previous) {
 		this.testMethod = testMethod;
+		this.stepCount = stepCount;
+		this.pendingWrites = pendingWrites;
+		this.deferredOutput = deferredOutput;
+		this.previous = previous;
 	}
 
 	/**
 	 * Returns the test {@link Method method} that is currently executing
 	 * 
-	 * @return The test method
+	 * @return The test method, or {@code null} if this is the context of a test class
 	 */
 	public Method getTestMethod() {
 		return this.testMethod;
 	}
 
 	/**
-	 * Gets and then increments the current step count
+	 * Binds this context to the given {@code request}, advancing to the next step. The
+	 * bound context's step count is the step of the request and is unaffected by any
+	 * requests that are performed subsequently.
 	 * 
-	 * @return The step count prior to it being incremented
+	 * @param request The request
 	 */
-	int getAndIncrementStepCount() {
-		return this.stepCount.getAndIncrement();
+	void bindTo(MockHttpServletRequest request) {
+		request.setAttribute(ATTRIBUTE_NAME, new RestDocumentationContext(
+				this.testMethod, new AtomicInteger(this.stepCount.incrementAndGet()),
+				this.pendingWrites, this.deferredOutput, null));
 	}
 
 	/**
@@ -68,21 +178,226 @@ public class RestDocumentationContext {
 		return this.stepCount.get();
 	}
 
-	static void establishContext(Method testMethod) {
-		CONTEXTS.set(new RestDocumentationContext(testMethod));
+	/**
+	 * Wraps the given {@code task} so that this context is the current context of the
+	 * thread that runs it for the duration of the task.
+	 * 
+	 * @param task The task
+	 * @return The wrapped task
+	 */
+	public <T> Callable<T> wrap(final Callable<T> task) {
+		return new Callable<T>() {
+
+			@Override
+			public T call() throws Exception {
+				RestDocumentationContext previous = CONTEXTS.get();
+				CONTEXTS.set(RestDocumentationContext.this);
+				try {
+					return task.call();
+				}
+				finally {
+					CONTEXTS.set(previous);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Wraps the given {@code task} so that this context is the current context of the
+	 * thread that runs it for the duration of the task.
+	 * 
+	 * @param task The task
+	 * @return The wrapped task
+	 */
+	public Runnable wrap(final Runnable task) {
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				RestDocumentationContext previous = CONTEXTS.get();
+				CONTEXTS.set(RestDocumentationContext.this);
+				try {
+					task.run();
+				}
+				finally {
+					CONTEXTS.set(previous);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Registers a write of a snippet that is being performed asynchronously. If the
+	 * context is that of a test method, the write is awaited when the test method ends.
+	 * If it is that of a test class, it is awaited when the test class ends. Otherwise,
+	 * it is awaited when the JVM shuts down.
+	 * 
+	 * @param context the context in which the snippet was produced, or {@code null}
+	 * @param write the pending write
+	 * @see RestDocumentationTestExecutionListener
+	 */
+	public static void registerPendingWrite(RestDocumentationContext context,
+			Future<?> write) {
+		List<Future<?>> writes = (context == null ? DETACHED : context).pendingWrites;
+		synchronized (writes) {
+			writes.add(write);
+		}
+	}
+
+	void awaitPendingWrites() throws Exception {
+		await(this.pendingWrites);
+	}
+
+	/**
+	 * Registers output that has been deferred until the end of the current test class.
+	 * The output is {@link Flushable#flush() flushed} when the test class ends or, if
+	 * there is no current context, when the JVM shuts down. Registering the same output
+	 * more than once for the same test class has no effect.
+	 * 
+	 * @param output the deferred output
+	 * @see RestDocumentationTestExecutionListener
+	 */
+	public static void registerDeferredOutput(Flushable output) {
+		RestDocumentationContext context = currentContext();
+		Set<Flushable> deferred = (context == null ? DETACHED : context).deferredOutput;
+		synchronized (deferred) {
+			deferred.add(output);
+		}
+	}
+
+	private static void flush(Set<Flushable> deferredOutput) throws IOException {
+		List<Flushable> deferred;
+		synchronized (deferredOutput) {
+			deferred = new ArrayList<Flushable>(deferredOutput);
+			deferredOutput.clear();
+		}
+		IOException failure = null;
+		for (Flushable output : deferred) {
+			try {
+				output.flush();
+			}
+			catch (IOException ex) {
+				if (failure == null) {
+					failure = ex;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static void await(List<Future<?>> writes) throws Exception {
+		List<Future<?>> pending;
+		synchronized (writes) {
+			pending = new ArrayList<Future<?>>(writes);
+			writes.clear();
+		}
+		Throwable failure = null;
+		for (Future<?> write : pending) {
+			try {
+				write.get();
+			}
+			catch (ExecutionException ex) {
+				if (failure == null) {
+					failure = ex.getCause();
+				}
+			}
+		}
+		if (failure instanceof Exception) {
+			throw (Exception) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+	}
+
+	private void complete() throws Exception {
+		try {
+			awaitPendingWrites();
+		}
+		finally {
+			flush(this.deferredOutput);
+		}
+	}
+
+	private static List<RestDocumentationContext> remaining() {
+		List<RestDocumentationContext> remaining = new ArrayList<RestDocumentationContext>(
+				CLASS_CONTEXTS.values());
+		remaining.add(DETACHED);
+		return remaining;
+	}
+
+	private static Set<Flushable> newOutputSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Flushable, Boolean>());
+	}
+
+	static void establishClassContext(Class<?> testClass) {
+		RestDocumentationContext context = new RestDocumentationContext(null, null,
+				CONTEXTS.get());
+		CLASS_CONTEXTS.put(testClass, context);
+		CONTEXTS.set(context);
+	}
+
+	static void establishContext(Method testMethod, Class<?> testClass) {
+		RestDocumentationContext classContext = CLASS_CONTEXTS.get(testClass);
+		if (classContext == null) {
+			RestDocumentationContext created = new RestDocumentationContext(null, null,
+					null);
+			classContext = CLASS_CONTEXTS.putIfAbsent(testClass, created);
+			if (classContext == null) {
+				classContext = created;
+			}
+		}
+		CONTEXTS.set(new RestDocumentationContext(testMethod,
+				classContext.deferredOutput, CONTEXTS.get()));
 	}
 
 	static void clearContext() {
-		CONTEXTS.set(null);
+		RestDocumentationContext context = CONTEXTS.get();
+		CONTEXTS.set(context == null ? null : context.previous);
+	}
+
+	static void completeClassContext(Class<?> testClass) throws Exception {
+		RestDocumentationContext context = CLASS_CONTEXTS.remove(testClass);
+		if (context == null) {
+			return;
+		}
+		try {
+			context.complete();
+		}
+		finally {
+			if (CONTEXTS.get() == context) {
+				CONTEXTS.set(context.previous);
+			}
+		}
 	}
 
 	/**
-	 * Returns the current context, never {@code null}.
+	 * Returns the current thread's context.
 	 * 
-	 * @return The current context
+	 * @return The current context, or {@code null} if there is no current context
 	 */
 	public static RestDocumentationContext currentContext() {
 		return CONTEXTS.get();
 	}
 
+	/**
+	 * Returns the context in which the given {@code result} was produced. If no context
+	 * was bound to the result's request, the current thread's context is returned.
+	 * 
+	 * @param result The result
+	 * @return The context, or {@code null} if there is no context
+	 */
+	public static RestDocumentationContext get(MvcResult result) {
+		Object context = result.getRequest() == null ? null : result.getRequest()
+				.getAttribute(ATTRIBUTE_NAME);
+		if (context instanceof RestDocumentationContext) {
+			return (RestDocumentationContext) context;
+		}
+		return currentContext();
+	}
+
 }
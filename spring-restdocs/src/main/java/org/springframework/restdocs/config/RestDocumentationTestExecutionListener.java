@@ -22,19 +22,47 @@ import org.springframework.test.context.support.AbstractTestExecutionListener;
 
 /**
  * A {@link TestExecutionListener} that sets up and tears down the Spring REST Docs
- * context for each test method
+ * context for each test class and test method. When snippets are written
+ * asynchronously, it waits for the writes to complete at the end of each test method and
+ * test class so that a failed write fails the test that produced it. Output that has
+ * been deferred until the end of a test class is flushed once that test class ends.
  * 
  * @author Andy Wilkinson
  */
 public class RestDocumentationTestExecutionListener extends AbstractTestExecutionListener {
 
+	@Override
+	public void beforeTestClass(TestContext testContext) throws Exception {
+		RestDocumentationContext.establishClassContext(getTestClass(testContext));
+	}
+
 	@Override
 	public void beforeTestMethod(TestContext testContext) throws Exception {
-		RestDocumentationContext.establishContext(testContext.getTestMethod());
+		RestDocumentationContext.establishContext(testContext.getTestMethod(),
+				getTestClass(testContext));
 	}
 
 	@Override
 	public void afterTestMethod(TestContext testContext) throws Exception {
-		RestDocumentationContext.clearContext();
+		RestDocumentationContext context = RestDocumentationContext.currentContext();
+		try {
+			if (context != null) {
+				context.awaitPendingWrites();
+			}
+		}
+		finally {
+			RestDocumentationContext.clearContext();
+		}
+	}
+
+	@Override
+	public void afterTestClass(TestContext testContext) throws Exception {
+		RestDocumentationContext.completeClassContext(getTestClass(testContext));
+	}
+
+	private Class<?> getTestClass(TestContext testContext) {
+		Class<?> testClass = testContext.getTestClass();
+		return testClass != null ? testClass : testContext.getTestMethod()
+				.getDeclaringClass();
 	}
 }
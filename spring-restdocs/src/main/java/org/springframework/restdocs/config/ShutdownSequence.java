@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.config;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.springframework.util.Assert;
+
+/**
+ * The sequence of tasks that complete the documentation output of a JVM when it shuts
+ * down. A single shutdown hook runs the tasks one {@link Phase phase} at a time so that
+ * output that is produced by the tasks of one phase is handled by those of the next.
+ * Within a phase, tasks are run in the order in which they were registered.
+ *
+ * @author Andy Wilkinson
+ */
+public final class ShutdownSequence {
+
+	private static final ShutdownSequence jvmSequence = new ShutdownSequence();
+
+	static {
+		try {
+			Runtime.getRuntime().addShutdownHook(new Thread("restdocs-shutdown") {
+
+				@Override
+				public void run() {
+					jvmSequence.run();
+				}
+
+			});
+		}
+		catch (IllegalStateException ex) {
+			// The JVM is already shutting down
+		}
+	}
+
+	private final Map<Phase, List<Task>> tasks = new EnumMap<Phase, List<Task>>(
+			Phase.class);
+
+	ShutdownSequence() {
+
+	}
+
+	/**
+	 * Registers a task to be run in the given {@code phase} when the JVM shuts down. A
+	 * failure of the task is reported using the given {@code description} of what it
+	 * does, and does not prevent the remaining tasks from running.
+	 *
+	 * @param phase the phase
+	 * @param description a description of what the task does, for example
+	 * {@code "complete snippet archive"}
+	 * @param task the task
+	 */
+	public static void register(Phase phase, String description, Callable<Void> task) {
+		jvmSequence.add(phase, description, task);
+	}
+
+	void add(Phase phase, String description, Callable<Void> task) {
+		Assert.notNull(phase, "Phase must not be null");
+		Assert.notNull(task, "Task must not be null");
+		synchronized (this.tasks) {
+			List<Task> phaseTasks = this.tasks.get(phase);
+			if (phaseTasks == null) {
+				phaseTasks = new ArrayList<Task>();
+				this.tasks.put(phase, phaseTasks);
+			}
+			phaseTasks.add(new Task(description, task));
+		}
+	}
+
+	void run() {
+		for (Phase phase : Phase.values()) {
+			List<Task> phaseTasks;
+			synchronized (this.tasks) {
+				List<Task> registered = this.tasks.get(phase);
+				phaseTasks = registered == null ? new ArrayList<Task>()
+						: new ArrayList<Task>(registered);
+			}
+			for (Task task : phaseTasks) {
+				try {
+					task.callable.call();
+				}
+				catch (Throwable ex) {
+					System.err.println("Failed to " + task.description + ": " + ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The phases of the sequence, in the order in which they are run.
+	 */
+	public enum Phase {
+
+		/**
+		 * Waits for snippets that are being written asynchronously.
+		 */
+		AWAIT_WRITES,
+
+		/**
+		 * Flushes output that has been deferred, such as batches of snippets.
+		 */
+		FLUSH_DEFERRED_OUTPUT,
+
+		/**
+		 * Completes the files to which snippets have been written, such as the parts of
+		 * an archive or journal. Nothing can be written to them afterwards.
+		 */
+		COMPLETE_OUTPUT
+
+	}
+
+	private static final class Task {
+
+		private final String description;
+
+		private final Callable<Void> callable;
+
+		private Task(String description, Callable<Void> callable) {
+			this.description = description;
+			this.callable = callable;
+		}
+
+	}
+
+}
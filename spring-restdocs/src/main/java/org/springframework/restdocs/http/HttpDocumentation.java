@@ -27,6 +27,7 @@ import org.springframework.restdocs.snippet.DocumentationWriter;
 import org.springframework.restdocs.snippet.DocumentationWriter.DocumentationAction;
 import org.springframework.restdocs.snippet.SnippetWritingResultHandler;
 import org.springframework.restdocs.util.DocumentableHttpServletRequest;
+import org.springframework.restdocs.util.PayloadCache;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.StringUtils;
 
@@ -148,7 +149,8 @@ public abstract class HttpDocumentation {
 				}
 			}
 			this.writer.println();
-			this.writer.println(this.result.getResponse().getContentAsString());
+			this.writer.println(PayloadCache.getContent(this.result.getResponse())
+					.toString());
 		}
 	}
 
@@ -26,8 +26,7 @@ import java.util.Map.Entry;
 
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.restdocs.util.PayloadCache;
 
 /**
  * Static factory methods providing a selection of {@link LinkExtractor link extractors}
@@ -81,15 +80,10 @@ public abstract class LinkExtractors {
 
 	private abstract static class JsonContentLinkExtractor implements LinkExtractor {
 
-		private final ObjectMapper objectMapper = new ObjectMapper();
-
 		@Override
-		@SuppressWarnings("unchecked")
 		public Map<String, List<Link>> extractLinks(MockHttpServletResponse response)
 				throws IOException {
-			Map<String, Object> jsonContent = this.objectMapper.readValue(
-					response.getContentAsString(), Map.class);
-			return extractLinks(jsonContent);
+			return extractLinks(PayloadCache.getJsonContent(response));
 		}
 
 		protected abstract Map<String, List<Link>> extractLinks(Map<String, Object> json);
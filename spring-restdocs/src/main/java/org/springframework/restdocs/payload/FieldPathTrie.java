@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The paths of a list of {@link FieldDescriptor FieldDescriptors} compiled into a trie
+ * of path segments. Compiling the paths once allows a payload to be matched against all
+ * of the descriptors in a single traversal without the paths having to be split again.
+ * <p>
+ * A segment with a {@code []} suffix, for example the {@code notes[]} in
+ * {@code notes[].title}, matches each of the elements of an array. The suffix may be
+ * repeated to match the elements of nested arrays.
+ * <p>
+ * By default, segments are separated by a {@code .}. The paths of the fields of XML
+ * payloads are separated by a {@code /} instead, for example {@code a/b/@c}. Empty
+ * segments, such as the one that precedes a leading {@code /}, are ignored.
+ *
+ * @author Andy Wilkinson
+ */
+class FieldPathTrie {
+
+	private static final String ARRAY_SUFFIX = "[]";
+
+	private final Node root = new Node();
+
+	private final List<Node> describedNodes = new ArrayList<Node>();
+
+	FieldPathTrie(List<FieldDescriptor> descriptors) {
+		this(descriptors, '.');
+	}
+
+	FieldPathTrie(List<FieldDescriptor> descriptors, char separator) {
+		for (FieldDescriptor descriptor : descriptors) {
+			Node node = this.root;
+			for (String segment : segments(descriptor.getPath(), separator)) {
+				int arrayDepth = 0;
+				while (segment.endsWith(ARRAY_SUFFIX)) {
+					segment = segment.substring(0, segment.length()
+							- ARRAY_SUFFIX.length());
+					arrayDepth++;
+				}
+				if (segment.length() > 0) {
+					node = node.getOrCreateChild(segment);
+				}
+				for (int i = 0; i < arrayDepth; i++) {
+					node = node.getOrCreateElement();
+				}
+			}
+			if (node.descriptor == null) {
+				node.index = this.describedNodes.size();
+				this.describedNodes.add(node);
+			}
+			node.descriptor = descriptor;
+		}
+	}
+
+	/**
+	 * Returns the root of the trie. It corresponds to the payload itself and is never
+	 * described.
+	 *
+	 * @return the root node
+	 */
+	Node getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * Returns the nodes that are described by a {@link FieldDescriptor} in the order in
+	 * which their descriptors were first provided. A node's {@link Node#getIndex() index}
+	 * is its position in this list.
+	 *
+	 * @return the described nodes
+	 */
+	List<Node> getDescribedNodes() {
+		return this.describedNodes;
+	}
+
+	private static List<String> segments(String path, char separator) {
+		List<String> segments = new ArrayList<String>();
+		int start = 0;
+		for (int end = path.indexOf(separator); end > -1; end = path.indexOf(separator,
+				start)) {
+			segments.add(path.substring(start, end));
+			start = end + 1;
+		}
+		segments.add(path.substring(start));
+		return segments;
+	}
+
+	/**
+	 * A node in a {@link FieldPathTrie}, corresponding to a single path segment.
+	 */
+	static final class Node {
+
+		private Map<String, Node> children = Collections.emptyMap();
+
+		private Node element;
+
+		private FieldDescriptor descriptor;
+
+		private int index = -1;
+
+		private Node getOrCreateChild(String segment) {
+			Node child = this.children.get(segment);
+			if (child == null) {
+				if (this.children.isEmpty()) {
+					this.children = new HashMap<String, Node>();
+				}
+				child = new Node();
+				this.children.put(segment, child);
+			}
+			return child;
+		}
+
+		private Node getOrCreateElement() {
+			if (this.element == null) {
+				this.element = new Node();
+			}
+			return this.element;
+		}
+
+		Node getChild(String segment) {
+			return this.children.get(segment);
+		}
+
+		Collection<Map.Entry<String, Node>> getChildren() {
+			return this.children.entrySet();
+		}
+
+		boolean hasChildren() {
+			return !this.children.isEmpty();
+		}
+
+		/**
+		 * Returns the node that matches each of the elements of an array, or {@code null}
+		 * if this node's path does not continue into an array.
+		 *
+		 * @return the element node or {@code null}
+		 */
+		Node getElement() {
+			return this.element;
+		}
+
+		boolean isDescribed() {
+			return this.descriptor != null;
+		}
+
+		FieldDescriptor getDescriptor() {
+			return this.descriptor;
+		}
+
+		int getIndex() {
+			return this.index;
+		}
+
+	}
+
+}
@@ -18,20 +18,21 @@ package org.springframework.restdocs.payload;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.restdocs.config.DocumentationConfiguration;
 import org.springframework.restdocs.snippet.DocumentationWriter;
 import org.springframework.restdocs.snippet.DocumentationWriter.TableAction;
 import org.springframework.restdocs.snippet.DocumentationWriter.TableWriter;
 import org.springframework.restdocs.snippet.SnippetWritingResultHandler;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.Assert;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.StringUtils;
 
 /**
  * A {@link SnippetWritingResultHandler} that produces a snippet documenting a RESTful
@@ -44,15 +45,9 @@ public abstract class FieldSnippetResultHandler extends SnippetWritingResultHand
 
 	private final Map<String, FieldDescriptor> descriptorsByPath = new LinkedHashMap<String, FieldDescriptor>();
 
-	private final FieldTypeResolver fieldTypeResolver = new FieldTypeResolver();
-
-	private final FieldExtractor fieldExtractor = new FieldExtractor();
-
-	private final FieldValidator fieldValidator = new FieldValidator();
+	private final FieldPathTrie fieldPaths;
 
-	private final ObjectMapper objectMapper = new ObjectMapper();
-
-	private List<FieldDescriptor> fieldDescriptors;
+	private final FieldPathTrie xmlFieldPaths;
 
 	FieldSnippetResultHandler(String outputDir, String filename,
 			List<FieldDescriptor> descriptors) {
@@ -62,28 +57,35 @@ public abstract class FieldSnippetResultHandler extends SnippetWritingResultHand
 			Assert.hasText(descriptor.getDescription());
 			this.descriptorsByPath.put(descriptor.getPath(), descriptor);
 		}
-		this.fieldDescriptors = descriptors;
+		this.fieldPaths = new FieldPathTrie(descriptors);
+		this.xmlFieldPaths = new FieldPathTrie(descriptors, '/');
 	}
 
 	@Override
 	protected void handle(MvcResult result, DocumentationWriter writer)
 			throws IOException {
 
-		this.fieldValidator.validate(getPayloadReader(result), this.fieldDescriptors);
-
-		final Map<String, Object> payload = extractPayload(result);
-
-		List<String> missingFields = new ArrayList<String>();
-
-		for (FieldDescriptor fieldDescriptor : this.fieldDescriptors) {
-			if (!fieldDescriptor.isOptional()) {
-				Object field = this.fieldExtractor.extractField(
-						fieldDescriptor.getPath(), payload);
-				if (field == null) {
-					missingFields.add(fieldDescriptor.getPath());
-				}
+		final Map<String, FieldType> resolvedTypes;
+		Reader payloadReader = getPayloadReader(result);
+		try {
+			DocumentationConfiguration configuration = DocumentationConfiguration
+					.get(result);
+			if (isXml(getContentType(result))) {
+				resolvedTypes = new XmlFieldValidator(
+						configuration.getPayloadMemoryThreshold(),
+						configuration.getUndocumentedPayloadReportLimit()).validate(
+						payloadReader, this.xmlFieldPaths);
+			}
+			else {
+				resolvedTypes = new FieldValidator(configuration.getJsonSupport(),
+						configuration.getPayloadMemoryThreshold(),
+						configuration.getUndocumentedPayloadReportLimit()).validate(
+						payloadReader, this.fieldPaths);
 			}
 		}
+		finally {
+			payloadReader.close();
+		}
 
 		writer.table(new TableAction() {
 
@@ -94,8 +96,12 @@ public abstract class FieldSnippetResultHandler extends SnippetWritingResultHand
 						.entrySet()) {
 					FieldDescriptor descriptor = entry.getValue();
 					FieldType type = descriptor.getType() != null ? descriptor.getType()
-							: FieldSnippetResultHandler.this.fieldTypeResolver
-									.resolveFieldType(descriptor.getPath(), payload);
+							: resolvedTypes.get(descriptor.getPath());
+					if (type == null) {
+						throw new IllegalArgumentException(
+								"The payload does not contain a field with the path '"
+										+ descriptor.getPath() + "'");
+					}
 					tableWriter.row(entry.getKey().toString(), type.toString(), entry
 							.getValue().getDescription());
 				}
@@ -106,17 +112,39 @@ public abstract class FieldSnippetResultHandler extends SnippetWritingResultHand
 
 	}
 
-	@SuppressWarnings("unchecked")
-	private Map<String, Object> extractPayload(MvcResult result) throws IOException {
-		Reader payloadReader = getPayloadReader(result);
+	private boolean isXml(String contentType) {
+		if (!StringUtils.hasText(contentType)) {
+			return false;
+		}
 		try {
-			return this.objectMapper.readValue(payloadReader, Map.class);
+			String subtype = MediaType.parseMediaType(contentType).getSubtype();
+			return "xml".equals(subtype) || subtype.endsWith("+xml");
 		}
-		finally {
-			payloadReader.close();
+		catch (InvalidMediaTypeException ex) {
+			return false;
 		}
 	}
 
+	/**
+	 * Returns the content type of the payload that is to be documented. A payload with
+	 * an XML content type, such as {@code application/xml} or
+	 * {@code application/atom+xml}, is documented as XML. Any other payload is
+	 * documented as JSON.
+	 *
+	 * @param result the result that is being documented
+	 * @return the content type or {@code null}
+	 */
+	protected abstract String getContentType(MvcResult result);
+
+	/**
+	 * Returns a {@code Reader} for the payload that is to be documented. The reader is
+	 * used to validate the payload, and to resolve the types of its fields, as it is
+	 * read. It is closed once validation has completed.
+	 *
+	 * @param result the result that is being documented
+	 * @return a reader for the payload
+	 * @throws IOException if the payload cannot be read
+	 */
 	protected abstract Reader getPayloadReader(MvcResult result) throws IOException;
 
 }
\ No newline at end of file
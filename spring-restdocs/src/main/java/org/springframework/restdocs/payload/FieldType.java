@@ -22,12 +22,15 @@ import org.springframework.util.StringUtils;
 
 /**
  * An enumeration of the possible types for a field in a JSON request or response payload
+ * or for an element or attribute in an XML payload.
+ * {@link #VARIES} is used when a field, such as a field of the elements of an array, has
+ * more than one type.
  * 
  * @author Andy Wilkinson
  */
 public enum FieldType {
 
-	ARRAY, BOOLEAN, OBJECT, NUMBER, NULL, STRING;
+	ARRAY, BOOLEAN, OBJECT, NUMBER, NULL, STRING, VARIES;
 
 	@Override
 	public String toString() {
@@ -16,38 +16,65 @@
 
 package org.springframework.restdocs.payload;
 
-import java.util.Collection;
-import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonToken;
 
 /**
- * Resolves the type of a field in a request or response payload
+ * Resolves the type of a field in a request or response payload. The type of a field in
+ * a JSON payload is resolved from the token with which the field's value begins. The
+ * type of an element or attribute in an XML payload is inferred from its content.
  * 
  * @author Andy Wilkinson
  */
 class FieldTypeResolver {
 
-	private final FieldExtractor fieldExtractor = new FieldExtractor();
-
-	FieldType resolveFieldType(String path, Map<String, Object> payload) {
-		return determineFieldType(this.fieldExtractor.extractField(path, payload));
-	}
+	private static final Pattern NUMBER_PATTERN = Pattern
+			.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
 
-	private FieldType determineFieldType(Object fieldValue) {
-		if (fieldValue == null) {
+	FieldType resolveFieldType(JsonToken token) {
+		if (token == JsonToken.VALUE_NULL) {
 			return FieldType.NULL;
 		}
-		if (fieldValue instanceof String) {
+		if (token == JsonToken.VALUE_STRING) {
 			return FieldType.STRING;
 		}
-		if (fieldValue instanceof Map) {
+		if (token == JsonToken.START_OBJECT) {
 			return FieldType.OBJECT;
 		}
-		if (fieldValue instanceof Collection) {
+		if (token == JsonToken.START_ARRAY) {
 			return FieldType.ARRAY;
 		}
-		if (fieldValue instanceof Boolean) {
+		if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
 			return FieldType.BOOLEAN;
 		}
 		return FieldType.NUMBER;
 	}
+
+	/**
+	 * Resolves the type of an XML element or attribute. An element with child elements
+	 * is an {@link FieldType#OBJECT object}. Otherwise, the type is inferred from the
+	 * element's or attribute's text, with empty text being {@link FieldType#NULL null}.
+	 *
+	 * @param hasChildElements whether or not the element has child elements
+	 * @param text the text of the element or attribute
+	 * @return the type
+	 */
+	FieldType resolveFieldType(boolean hasChildElements, CharSequence text) {
+		if (hasChildElements) {
+			return FieldType.OBJECT;
+		}
+		String trimmed = text.toString().trim();
+		if (trimmed.length() == 0) {
+			return FieldType.NULL;
+		}
+		if ("true".equals(trimmed) || "false".equals(trimmed)) {
+			return FieldType.BOOLEAN;
+		}
+		if (NUMBER_PATTERN.matcher(trimmed).matches()) {
+			return FieldType.NUMBER;
+		}
+		return FieldType.STRING;
+	}
+
 }
@@ -19,41 +19,104 @@ package org.springframework.restdocs.payload;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.restdocs.payload.FieldPathTrie.Node;
+import org.springframework.restdocs.util.JsonSupport;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
 
 /**
  * {@code FieldValidator} is used to validate a payload's fields against the user-provided
  * {@link FieldDescriptor}s.
- * 
+ * <p>
+ * The payload is validated as a stream of tokens. Documented portions of the payload are
+ * skipped and only the portions that turn out to be undocumented are written out so that
+ * they can be included in the failure message. Once they exceed a memory threshold, the
+ * undocumented portions are written to a temporary file and the failure message only
+ * includes their beginning.
+ * <p>
+ * The types of the described fields are resolved from the tokens as the payload is
+ * validated so that the payload does not have to be traversed again to document them.
+ *
  * @author Andy Wilkinson
  */
 class FieldValidator {
 
-	private final FieldExtractor fieldExtractor = new FieldExtractor();
+	private final FieldTypeResolver fieldTypeResolver = new FieldTypeResolver();
+
+	private final JsonSupport jsonSupport;
 
-	private final ObjectMapper objectMapper = new ObjectMapper()
-			.enable(SerializationFeature.INDENT_OUTPUT);
+	private final int memoryThreshold;
+
+	private final int reportLimit;
+
+	FieldValidator(JsonSupport jsonSupport, int memoryThreshold, int reportLimit) {
+		this.jsonSupport = jsonSupport;
+		this.memoryThreshold = memoryThreshold;
+		this.reportLimit = reportLimit;
+	}
 
-	@SuppressWarnings("unchecked")
-	void validate(Reader payloadReader, List<FieldDescriptor> fieldDescriptors)
+	/**
+	 * Validates the payload that is read from the given {@code payloadReader} against
+	 * the given {@code fieldPaths}. As a by-product of validation, the types of the
+	 * described fields that are found in the payload are resolved.
+	 *
+	 * @param payloadReader the reader for the payload
+	 * @param fieldPaths the compiled field paths
+	 * @return the types of the described fields that were found, keyed by path
+	 * @throws IOException if the payload cannot be read
+	 */
+	Map<String, FieldType> validate(Reader payloadReader, FieldPathTrie fieldPaths)
 			throws IOException {
-		Map<String, Object> payload = this.objectMapper.readValue(payloadReader,
-				Map.class);
-		List<String> missingFields = findMissingFields(payload, fieldDescriptors);
-		Map<String, Object> undocumentedPayload = findUndocumentedFields(payload,
-				fieldDescriptors);
+		JsonParser parser = this.jsonSupport.createParser(payloadReader);
+		SpillingWriter undocumentedOutput = new SpillingWriter(this.memoryThreshold,
+				".json");
+		JsonGenerator generator = this.jsonSupport
+				.createIndentingGenerator(undocumentedOutput);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonMappingException("The payload is not a JSON object",
+						parser.getCurrentLocation());
+			}
+			Validation validation = new Validation(parser, fieldPaths,
+					new UndocumentedPayloadWriter(generator));
+			validation.undocumented.enterObject(null);
+			validateObject(validation, fieldPaths.getRoot(), false);
+			validation.undocumented.exit();
+			generator.flush();
+			assertDocumented(findMissingFields(fieldPaths, validation.present),
+					!validation.undocumented.isEmpty(), undocumentedOutput,
+					this.reportLimit);
+			return getFieldTypes(fieldPaths, validation.types);
+		}
+		finally {
+			parser.close();
+			generator.close();
+			undocumentedOutput.close();
+		}
+	}
 
-		if (!missingFields.isEmpty() || !undocumentedPayload.isEmpty()) {
+	/**
+	 * Throws a {@link FieldValidationException} that describes the undocumented portions
+	 * of a payload and the fields that are missing from it, if there are any.
+	 */
+	static void assertDocumented(List<String> missingFields, boolean undocumented,
+			SpillingWriter undocumentedOutput, int reportLimit) throws IOException {
+		if (!missingFields.isEmpty() || undocumented) {
 			String message = "";
-			if (!undocumentedPayload.isEmpty()) {
+			if (undocumented) {
 				message += String.format(
 						"Portions of the payload were not documented:%n%s",
-						this.objectMapper.writeValueAsString(undocumentedPayload));
+						undocumentedOutput.getContent(reportLimit));
+				if (undocumentedOutput.getLength() > reportLimit) {
+					message += describeTruncation(undocumentedOutput);
+				}
 			}
 			if (!missingFields.isEmpty()) {
 				message += "Fields with the following paths were not found in the payload: "
@@ -63,48 +126,126 @@ class FieldValidator {
 		}
 	}
 
-	private List<String> findMissingFields(Map<String, Object> payload,
-			List<FieldDescriptor> fieldDescriptors) {
-		List<String> missingFields = new ArrayList<String>();
+	private static String describeTruncation(SpillingWriter undocumentedOutput) {
+		String description = String.format("%n[Truncated from %d characters",
+				undocumentedOutput.getLength());
+		if (undocumentedOutput.getFile() != null) {
+			undocumentedOutput.retain();
+			description += ". The undocumented portions have been written in full to '"
+					+ undocumentedOutput.getFile() + "'";
+		}
+		return String.format("%s]%n", description);
+	}
 
-		for (FieldDescriptor fieldDescriptor : fieldDescriptors) {
-			if (!fieldDescriptor.isOptional()
-					&& !this.fieldExtractor.hasField(fieldDescriptor.getPath(), payload)) {
-				missingFields.add(fieldDescriptor.getPath());
-			}
+	/**
+	 * Validates the fields of the object on which the parser is positioned, leaving the
+	 * parser positioned on the object's end.
+	 */
+	private void validateObject(Validation validation, Node node, boolean documented)
+			throws IOException {
+		JsonParser parser = validation.parser;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			Node child = node == null ? null : node.getChild(name);
+			validateValue(validation, name, parser.nextToken(), child, documented);
 		}
+	}
 
-		return missingFields;
+	/**
+	 * Validates the value, beginning with the given {@code token}, on which the parser is
+	 * positioned, leaving the parser positioned on the value's last token. Described
+	 * fields that are found are recorded, along with their types, and the portions of the
+	 * value that are undocumented are written out.
+	 */
+	private void validateValue(Validation validation, String fieldName, JsonToken token,
+			Node node, boolean documented) throws IOException {
+		if (node != null && node.isDescribed()) {
+			validation.found(node, token);
+			documented = true;
+		}
+		if (token == JsonToken.START_OBJECT && node != null && node.hasChildren()) {
+			validation.undocumented.enterObject(fieldName);
+			validateObject(validation, node, documented);
+			validation.undocumented.exit();
+		}
+		else if (token == JsonToken.START_ARRAY && node != null
+				&& node.getElement() != null) {
+			validation.undocumented.enterArray(fieldName);
+			validateArray(validation, node.getElement(), documented);
+			validation.undocumented.exit();
+		}
+		else if (documented) {
+			validation.parser.skipChildren();
+		}
+		else {
+			validation.undocumented.write(fieldName, validation.parser);
+		}
 	}
 
-	private Map<String, Object> findUndocumentedFields(Map<String, Object> payload,
-			List<FieldDescriptor> fieldDescriptors) {
-		for (FieldDescriptor fieldDescriptor : fieldDescriptors) {
-			String path = fieldDescriptor.getPath();
-			List<String> segments = path.indexOf('.') > -1 ? Arrays.asList(path
-					.split("\\.")) : Arrays.asList(path);
-			removeField(segments, 0, payload);
+	private void validateArray(Validation validation, Node element, boolean documented)
+			throws IOException {
+		if (element.isDescribed()) {
+			validation.present[element.getIndex()] = true;
+			documented = true;
+		}
+		JsonToken token;
+		while ((token = validation.parser.nextToken()) != JsonToken.END_ARRAY) {
+			validateValue(validation, null, token, element, documented);
 		}
-		return payload;
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private void removeField(List<String> segments, int depth,
-			Map<String, Object> payloadPortion) {
-		String key = segments.get(depth);
-		if (depth == segments.size() - 1) {
-			payloadPortion.remove(key);
+	static List<String> findMissingFields(FieldPathTrie fieldPaths, boolean[] present) {
+		List<String> missingFields = new ArrayList<String>();
+		for (Node node : fieldPaths.getDescribedNodes()) {
+			if (!present[node.getIndex()] && !node.getDescriptor().isOptional()) {
+				missingFields.add(node.getDescriptor().getPath());
+			}
 		}
-		else {
-			Object candidate = payloadPortion.get(key);
-			if (candidate instanceof Map) {
-				Map map = (Map<?, ?>) candidate;
-				removeField(segments, depth + 1, map);
-				if (map.isEmpty()) {
-					payloadPortion.remove(key);
-				}
+		return missingFields;
+	}
+
+	static Map<String, FieldType> getFieldTypes(FieldPathTrie fieldPaths,
+			FieldType[] types) {
+		Map<String, FieldType> fieldTypes = new HashMap<String, FieldType>();
+		for (Node node : fieldPaths.getDescribedNodes()) {
+			if (types[node.getIndex()] != null) {
+				fieldTypes.put(node.getDescriptor().getPath(), types[node.getIndex()]);
 			}
 		}
+		return fieldTypes;
+	}
+
+	/**
+	 * The state of the validation of a single payload.
+	 */
+	private final class Validation {
+
+		private final JsonParser parser;
+
+		private final UndocumentedPayloadWriter undocumented;
+
+		private final boolean[] present;
+
+		private final FieldType[] types;
+
+		private Validation(JsonParser parser, FieldPathTrie fieldPaths,
+				UndocumentedPayloadWriter undocumented) {
+			this.parser = parser;
+			this.undocumented = undocumented;
+			this.present = new boolean[fieldPaths.getDescribedNodes().size()];
+			this.types = new FieldType[this.present.length];
+		}
+
+		private void found(Node node, JsonToken token) {
+			int index = node.getIndex();
+			this.present[index] = true;
+			FieldType type = FieldValidator.this.fieldTypeResolver
+					.resolveFieldType(token);
+			FieldType previousType = this.types[index];
+			this.types[index] = previousType == null || previousType == type ? type
+					: FieldType.VARIES;
+		}
+
 	}
 
 	@SuppressWarnings("serial")
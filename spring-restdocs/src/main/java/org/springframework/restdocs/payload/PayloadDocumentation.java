@@ -35,6 +35,18 @@ public abstract class PayloadDocumentation {
 	/**
 	 * Creates a {@code FieldDescriptor} that describes a field with the given
 	 * {@code path}.
+	 * <p>
+	 * The segments of a path are separated by a {@code .}, for example {@code a.b}
+	 * describes the field {@code b} of the object in the field {@code a}. A segment with
+	 * a {@code []} suffix matches each of the elements of an array, for example
+	 * {@code _embedded.notes[].title} describes the {@code title} field of every element
+	 * of the {@code notes} array and {@code _embedded.notes[]} describes the elements
+	 * themselves.
+	 * <p>
+	 * When the payload is XML, the segments of a path are separated by a {@code /} and
+	 * the path of an attribute ends with its name prefixed with an {@code @}, for example
+	 * {@code /order/item/@id}. A path describes every element or attribute that it
+	 * matches.
 	 * 
 	 * @param path The path of the field
 	 * @return a {@code FieldDescriptor} ready for further configuration
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.List;
 
+import org.springframework.restdocs.util.PayloadCache;
 import org.springframework.test.web.servlet.MvcResult;
 
 /**
@@ -32,9 +33,14 @@ public class RequestFieldSnippetResultHandler extends FieldSnippetResultHandler
 		super(outputDir, "request", descriptors);
 	}
 
+	@Override
+	protected String getContentType(MvcResult result) {
+		return result.getRequest().getContentType();
+	}
+
 	@Override
 	protected Reader getPayloadReader(MvcResult result) throws IOException {
-		return result.getRequest().getReader();
+		return PayloadCache.getContent(result.getRequest()).getReader();
 	}
 
 }
@@ -17,9 +17,9 @@ package org.springframework.restdocs.payload;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.List;
 
+import org.springframework.restdocs.util.PayloadCache;
 import org.springframework.test.web.servlet.MvcResult;
 
 /**
@@ -33,9 +33,14 @@ public class ResponseFieldSnippetResultHandler extends FieldSnippetResultHandler
 		super(outputDir, "response", descriptors);
 	}
 
+	@Override
+	protected String getContentType(MvcResult result) {
+		return result.getResponse().getContentType();
+	}
+
 	@Override
 	protected Reader getPayloadReader(MvcResult result) throws IOException {
-		return new StringReader(result.getResponse().getContentAsString());
+		return PayloadCache.getContent(result.getResponse()).getReader();
 	}
 
 }
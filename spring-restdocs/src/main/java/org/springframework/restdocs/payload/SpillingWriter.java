@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link Writer} that holds what is written to it in memory until a threshold is
+ * reached at which point it spills everything that has been written to a temporary
+ * file. The temporary file is deleted when the writer is closed unless it has been
+ * {@link #retain() retained}.
+ *
+ * @author Andy Wilkinson
+ */
+class SpillingWriter extends Writer {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final int threshold;
+
+	private final String suffix;
+
+	private StringBuilder buffer = new StringBuilder();
+
+	private File file;
+
+	private Writer fileWriter;
+
+	private long length;
+
+	private boolean retained;
+
+	private boolean closed;
+
+	SpillingWriter(int threshold, String suffix) {
+		this.threshold = threshold;
+		this.suffix = suffix;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		this.length += len;
+		if (this.fileWriter == null && this.buffer.length() + len > this.threshold) {
+			spill();
+		}
+		if (this.fileWriter != null) {
+			this.fileWriter.write(cbuf, off, len);
+		}
+		else {
+			this.buffer.append(cbuf, off, len);
+		}
+	}
+
+	private void spill() throws IOException {
+		this.file = File.createTempFile("restdocs-undocumented-", this.suffix);
+		this.fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				this.file), UTF_8));
+		this.fileWriter.append(this.buffer);
+		this.buffer = null;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (this.fileWriter != null) {
+			this.fileWriter.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		if (this.fileWriter != null) {
+			try {
+				this.fileWriter.close();
+			}
+			finally {
+				if (!this.retained) {
+					this.file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retains the temporary file to which the written characters were spilled, if any,
+	 * so that it is not deleted when this writer is closed.
+	 */
+	void retain() {
+		this.retained = true;
+	}
+
+	/**
+	 * Returns the number of characters that have been written.
+	 *
+	 * @return the number of characters
+	 */
+	long getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Returns the temporary file to which the written characters were spilled or
+	 * {@code null} if the threshold was not reached.
+	 *
+	 * @return the file or {@code null}
+	 */
+	File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Returns, at most, the first {@code maxLength} characters that have been written.
+	 * The writer should be {@link #flush() flushed} first.
+	 *
+	 * @param maxLength the maximum number of characters to return
+	 * @return the characters
+	 * @throws IOException if the characters cannot be read from the spill file
+	 */
+	String getContent(int maxLength) throws IOException {
+		if (this.file == null) {
+			return this.buffer.substring(0, Math.min(maxLength, this.buffer.length()));
+		}
+		StringBuilder content = new StringBuilder();
+		Reader reader = new InputStreamReader(new FileInputStream(this.file), UTF_8);
+		try {
+			char[] chars = new char[4096];
+			int read;
+			while (content.length() < maxLength
+					&& (read = reader.read(chars, 0,
+							Math.min(chars.length, maxLength - content.length()))) != -1) {
+				content.append(chars, 0, read);
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return content.toString();
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Writes the undocumented portions of a payload as they are found. Objects and arrays
+ * that are entered while validating a payload are only written once an undocumented
+ * value is found within them, so that the output contains nothing but the undocumented
+ * portions and their parents.
+ *
+ * @author Andy Wilkinson
+ */
+class UndocumentedPayloadWriter {
+
+	private final JsonGenerator generator;
+
+	private final List<Container> containers = new ArrayList<Container>();
+
+	private int started;
+
+	private boolean empty = true;
+
+	UndocumentedPayloadWriter(JsonGenerator generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * Enters an object that may contain undocumented values.
+	 *
+	 * @param fieldName the name of the field that contains the object or {@code null} if
+	 * it is not the value of a field
+	 */
+	void enterObject(String fieldName) {
+		this.containers.add(new Container(fieldName, true));
+	}
+
+	/**
+	 * Enters an array that may contain undocumented values.
+	 *
+	 * @param fieldName the name of the field that contains the array or {@code null} if
+	 * it is not the value of a field
+	 */
+	void enterArray(String fieldName) {
+		this.containers.add(new Container(fieldName, false));
+	}
+
+	/**
+	 * Exits the most recently entered object or array, writing its end if an undocumented
+	 * value was written within it.
+	 *
+	 * @throws IOException if the end cannot be written
+	 */
+	void exit() throws IOException {
+		Container container = this.containers.remove(this.containers.size() - 1);
+		if (this.started > this.containers.size()) {
+			this.started--;
+			if (container.object) {
+				this.generator.writeEndObject();
+			}
+			else {
+				this.generator.writeEndArray();
+			}
+		}
+	}
+
+	/**
+	 * Writes the undocumented value on which the given {@code parser} is positioned,
+	 * leaving the parser positioned on the value's last token.
+	 *
+	 * @param fieldName the name of the field that contains the value or {@code null} if
+	 * it is not the value of a field
+	 * @param parser the parser
+	 * @throws IOException if the value cannot be read or written
+	 */
+	void write(String fieldName, JsonParser parser) throws IOException {
+		startContainers();
+		if (fieldName != null) {
+			this.generator.writeFieldName(fieldName);
+		}
+		this.generator.copyCurrentStructure(parser);
+		this.empty = false;
+	}
+
+	/**
+	 * Returns whether or not any undocumented values have been written.
+	 *
+	 * @return {@code true} if nothing has been written, otherwise {@code false}
+	 */
+	boolean isEmpty() {
+		return this.empty;
+	}
+
+	private void startContainers() throws IOException {
+		for (; this.started < this.containers.size(); this.started++) {
+			Container container = this.containers.get(this.started);
+			if (container.fieldName != null) {
+				this.generator.writeFieldName(container.fieldName);
+			}
+			if (container.object) {
+				this.generator.writeStartObject();
+			}
+			else {
+				this.generator.writeStartArray();
+			}
+		}
+	}
+
+	private static final class Container {
+
+		private final String fieldName;
+
+		private final boolean object;
+
+		private Container(String fieldName, boolean object) {
+			this.fieldName = fieldName;
+			this.object = object;
+		}
+
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes the undocumented portions of an XML payload as they are found. Elements that
+ * are entered while validating a payload are only written once an undocumented
+ * attribute, text or element is found within them, so that the output contains nothing
+ * but the undocumented portions and their parents.
+ *
+ * @author Andy Wilkinson
+ * @see UndocumentedPayloadWriter
+ */
+class UndocumentedXmlWriter {
+
+	private final XMLStreamWriter writer;
+
+	private final List<String> elements = new ArrayList<String>();
+
+	private int started;
+
+	private boolean empty = true;
+
+	UndocumentedXmlWriter(XMLStreamWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Enters an element that may contain undocumented attributes, text or elements.
+	 *
+	 * @param name the qualified name of the element
+	 */
+	void enterElement(String name) {
+		this.elements.add(name);
+	}
+
+	/**
+	 * Exits the most recently entered element, writing its end if anything undocumented
+	 * was written within it.
+	 *
+	 * @throws XMLStreamException if the end cannot be written
+	 */
+	void exit() throws XMLStreamException {
+		this.elements.remove(this.elements.size() - 1);
+		if (this.started > this.elements.size()) {
+			this.started--;
+			this.writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * Writes an undocumented attribute of the most recently entered element. Must be
+	 * called before anything else is written within the element.
+	 *
+	 * @param name the qualified name of the attribute
+	 * @param value the value of the attribute
+	 * @throws XMLStreamException if the attribute cannot be written
+	 */
+	void writeAttribute(String name, String value) throws XMLStreamException {
+		startElements();
+		this.writer.writeAttribute(name, value);
+		this.empty = false;
+	}
+
+	/**
+	 * Writes undocumented text within the most recently entered element.
+	 *
+	 * @param text the text
+	 * @throws XMLStreamException if the text cannot be written
+	 */
+	void writeCharacters(String text) throws XMLStreamException {
+		startElements();
+		this.writer.writeCharacters(text);
+		this.empty = false;
+	}
+
+	/**
+	 * Writes the undocumented element on which the given {@code reader} is positioned,
+	 * leaving the reader positioned on the element's end.
+	 *
+	 * @param reader the reader
+	 * @throws XMLStreamException if the element cannot be read or written
+	 */
+	void write(XMLStreamReader reader) throws XMLStreamException {
+		startElements();
+		int depth = 0;
+		do {
+			switch (reader.getEventType()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				this.writer.writeStartElement(XmlFieldValidator.getName(reader));
+				for (int i = 0; i < reader.getNamespaceCount(); i++) {
+					String prefix = reader.getNamespacePrefix(i);
+					this.writer.writeNamespace(prefix == null ? "" : prefix,
+							reader.getNamespaceURI(i));
+				}
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					this.writer.writeAttribute(
+							XmlFieldValidator.getAttributeName(reader, i),
+							reader.getAttributeValue(i));
+				}
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				this.writer.writeEndElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				this.writer.writeCharacters(reader.getTextCharacters(),
+						reader.getTextStart(), reader.getTextLength());
+				break;
+			default:
+				break;
+			}
+			if (depth > 0) {
+				reader.next();
+			}
+		}
+		while (depth > 0);
+		this.empty = false;
+	}
+
+	/**
+	 * Returns whether or not anything undocumented has been written.
+	 *
+	 * @return {@code true} if nothing has been written, otherwise {@code false}
+	 */
+	boolean isEmpty() {
+		return this.empty;
+	}
+
+	private void startElements() throws XMLStreamException {
+		for (; this.started < this.elements.size(); this.started++) {
+			this.writer.writeStartElement(this.elements.get(this.started));
+		}
+	}
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.springframework.restdocs.payload.FieldPathTrie.Node;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@code XmlFieldValidator} is used to validate an XML payload's elements and attributes
+ * against the user-provided {@link FieldDescriptor}s.
+ * <p>
+ * The path of an element is made up of the names of the elements that enclose it,
+ * separated by a {@code /}, for example {@code /order/items/item}. The path of an
+ * attribute is the path of its element followed by its name prefixed with an {@code @},
+ * for example {@code /order/items/item/@id}. A path describes every element or attribute
+ * that it matches. A documented element documents its text, its attributes and all of
+ * the elements within it.
+ * <p>
+ * Like {@link FieldValidator}, the payload is validated as a stream so that large
+ * payloads can be validated without building a document tree. The types of the
+ * described elements and attributes are inferred from their content as they are read.
+ *
+ * @author Andy Wilkinson
+ */
+class XmlFieldValidator {
+
+	private static final int MAX_INFERRED_TEXT_LENGTH = 64;
+
+	private static final XMLInputFactory inputFactory = createInputFactory();
+
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory
+			.newInstance();
+
+	private final FieldTypeResolver fieldTypeResolver = new FieldTypeResolver();
+
+	private final int memoryThreshold;
+
+	private final int reportLimit;
+
+	XmlFieldValidator(int memoryThreshold, int reportLimit) {
+		this.memoryThreshold = memoryThreshold;
+		this.reportLimit = reportLimit;
+	}
+
+	/**
+	 * Validates the payload that is read from the given {@code payloadReader} against
+	 * the given {@code fieldPaths}, which must have been compiled with a {@code /}
+	 * separator. As a by-product of validation, the types of the described elements and
+	 * attributes that are found in the payload are resolved.
+	 *
+	 * @param payloadReader the reader for the payload
+	 * @param fieldPaths the compiled field paths
+	 * @return the types of the described fields that were found, keyed by path
+	 * @throws IOException if the payload cannot be read or is not well-formed
+	 */
+	Map<String, FieldType> validate(Reader payloadReader, FieldPathTrie fieldPaths)
+			throws IOException {
+		SpillingWriter undocumentedOutput = new SpillingWriter(this.memoryThreshold,
+				".xml");
+		try {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(payloadReader);
+			XMLStreamWriter writer = outputFactory
+					.createXMLStreamWriter(undocumentedOutput);
+			try {
+				if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+					throw new IOException("The payload does not contain an element");
+				}
+				Validation validation = new Validation(reader, fieldPaths,
+						new UndocumentedXmlWriter(writer));
+				validateElement(validation, fieldPaths.getRoot()
+						.getChild(getName(reader)), false);
+				writer.flush();
+				FieldValidator.assertDocumented(
+						FieldValidator.findMissingFields(fieldPaths, validation.present),
+						!validation.undocumented.isEmpty(), undocumentedOutput,
+						this.reportLimit);
+				return FieldValidator.getFieldTypes(fieldPaths, validation.types);
+			}
+			finally {
+				reader.close();
+				writer.close();
+			}
+		}
+		catch (XMLStreamException ex) {
+			throw new IOException("The payload is not well-formed XML", ex);
+		}
+		finally {
+			undocumentedOutput.close();
+		}
+	}
+
+	/**
+	 * Validates the element on which the reader is positioned, leaving the reader
+	 * positioned on the element's end. Described elements and attributes that are found
+	 * are recorded, along with their types, and the portions of the element that are
+	 * undocumented are written out.
+	 */
+	private void validateElement(Validation validation, Node node, boolean documented)
+			throws XMLStreamException {
+		boolean described = node != null && node.isDescribed();
+		documented |= described;
+		if (node != null && node.hasChildren()) {
+			validateContent(validation, node, documented, described);
+		}
+		else if (documented) {
+			skipContent(validation, node, described);
+		}
+		else {
+			validation.undocumented.write(validation.reader);
+		}
+	}
+
+	private void validateContent(Validation validation, Node node, boolean documented,
+			boolean described) throws XMLStreamException {
+		XMLStreamReader reader = validation.reader;
+		validation.undocumented.enterElement(getName(reader));
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = getAttributeName(reader, i);
+			Node attribute = node.getChild("@" + name);
+			if (attribute != null && attribute.isDescribed()) {
+				validation.found(attribute, false, reader.getAttributeValue(i));
+			}
+			else if (!documented) {
+				validation.undocumented.writeAttribute(name,
+						reader.getAttributeValue(i));
+			}
+		}
+		boolean hasChildElements = false;
+		StringBuilder text = new StringBuilder();
+		int event;
+		while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				hasChildElements = true;
+				validateElement(validation, node.getChild(getName(reader)), documented);
+			}
+			else if (isText(event)) {
+				if (described) {
+					appendText(reader, text);
+				}
+				else if (!documented && !reader.isWhiteSpace()) {
+					validation.undocumented.writeCharacters(reader.getText());
+				}
+			}
+		}
+		validation.undocumented.exit();
+		if (described) {
+			validation.found(node, hasChildElements, text);
+		}
+	}
+
+	private void skipContent(Validation validation, Node node, boolean described)
+			throws XMLStreamException {
+		XMLStreamReader reader = validation.reader;
+		boolean hasChildElements = false;
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				hasChildElements = true;
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+			else if (described && depth == 1 && isText(event)) {
+				appendText(reader, text);
+			}
+		}
+		if (described) {
+			validation.found(node, hasChildElements, text);
+		}
+	}
+
+	private boolean isText(int event) {
+		return event == XMLStreamConstants.CHARACTERS
+				|| event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE;
+	}
+
+	/**
+	 * Appends the text on which the reader is positioned, stopping once enough text has
+	 * been read to infer its type.
+	 */
+	private void appendText(XMLStreamReader reader, StringBuilder text) {
+		if (text.length() <= MAX_INFERRED_TEXT_LENGTH) {
+			text.append(reader.getTextCharacters(), reader.getTextStart(), Math.min(
+					reader.getTextLength(), MAX_INFERRED_TEXT_LENGTH + 1 - text.length()));
+		}
+	}
+
+	static String getName(XMLStreamReader reader) {
+		return qualify(reader.getPrefix(), reader.getLocalName());
+	}
+
+	static String getAttributeName(XMLStreamReader reader, int index) {
+		return qualify(reader.getAttributePrefix(index),
+				reader.getAttributeLocalName(index));
+	}
+
+	private static String qualify(String prefix, String localName) {
+		return StringUtils.hasLength(prefix) ? prefix + ":" + localName : localName;
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return inputFactory;
+	}
+
+	/**
+	 * The state of the validation of a single payload.
+	 */
+	private final class Validation {
+
+		private final XMLStreamReader reader;
+
+		private final UndocumentedXmlWriter undocumented;
+
+		private final boolean[] present;
+
+		private final FieldType[] types;
+
+		private Validation(XMLStreamReader reader, FieldPathTrie fieldPaths,
+				UndocumentedXmlWriter undocumented) {
+			this.reader = reader;
+			this.undocumented = undocumented;
+			this.present = new boolean[fieldPaths.getDescribedNodes().size()];
+			this.types = new FieldType[this.present.length];
+		}
+
+		private void found(Node node, boolean hasChildElements, CharSequence text) {
+			int index = node.getIndex();
+			this.present[index] = true;
+			FieldType type = XmlFieldValidator.this.fieldTypeResolver.resolveFieldType(
+					hasChildElements, text);
+			FieldType previousType = this.types[index];
+			this.types[index] = previousType == null || previousType == type ? type
+					: FieldType.VARIES;
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SnippetStore} that writes snippets as entries of a zip archive. Each entry is
+ * named using the snippet's path. Snippets with an absolute path are written to the file
+ * system instead. Snippets are encoded using the platform's default charset. Storing a
+ * snippet at the same path again replaces it.
+ * <p>
+ * Each JVM writes its snippets to its own part of the archive. The archive should be
+ * {@link SnippetArchive#clean(File) cleaned} before the JVMs are started and the parts
+ * must be {@link SnippetArchive#merge(File) merged} once every JVM has exited.
+ *
+ * @author Andy Wilkinson
+ * @see SnippetArchive
+ */
+public class ArchiveSnippetStore implements SnippetStore {
+
+	private final FileSystemSnippetStore fileSystemStore = new FileSystemSnippetStore();
+
+	private final File archive;
+
+	/**
+	 * Creates a new {@code ArchiveSnippetStore} that will write snippets into the given
+	 * {@code archive}.
+	 *
+	 * @param archive the archive
+	 */
+	public ArchiveSnippetStore(File archive) {
+		Assert.notNull(archive, "Archive must not be null");
+		this.archive = archive.getAbsoluteFile();
+	}
+
+	/**
+	 * Returns the archive into which snippets are written.
+	 *
+	 * @return the archive
+	 */
+	public File getArchive() {
+		return this.archive;
+	}
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		if (new File(path).isAbsolute()) {
+			this.fileSystemStore.store(path, snippet);
+			return;
+		}
+		SnippetBuffer buffer = SnippetBuffer.from(snippet);
+		try {
+			SnippetArchive.write(this.archive, path, buffer, Charset.defaultCharset());
+		}
+		finally {
+			if (buffer != snippet) {
+				buffer.release();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.restdocs.config.ShutdownSequence;
+import org.springframework.restdocs.util.VirtualThreads;
+
+/**
+ * Writes snippets on a background thread. The queue of snippets that are waiting to be
+ * written is bounded. Once it is full, submitting a snippet blocks until there is room
+ * for it in the queue.
+ * <p>
+ * The writer's thread stops once it has been idle for a short time, so pending writes do
+ * not prevent the JVM from exiting once they have completed.
+ * <p>
+ * When {@link VirtualThreads#isAvailable() virtual threads are available}, each snippet
+ * is written on its own virtual thread instead and the number of writes that are in
+ * progress at any one time is bounded in the same way. Writes to the same path are
+ * still performed in the order in which they were submitted.
+ * <p>
+ * Whichever threads are used, writes that are pending when the JVM shuts down are
+ * awaited by the {@link ShutdownSequence} before deferred output is flushed and the
+ * files to which snippets are written are completed.
+ *
+ * @author Andy Wilkinson
+ */
+final class AsynchronousSnippetWriter {
+
+	private static final int QUEUE_CAPACITY = 64;
+
+	private static final ExecutorService executor = VirtualThreads.isAvailable() ? VirtualThreads
+			.newExecutor() : createExecutor();
+
+	private static final Semaphore permits = VirtualThreads.isAvailable() ? new Semaphore(
+			QUEUE_CAPACITY) : null;
+
+	private static final Set<Future<Void>> pendingWrites = new HashSet<Future<Void>>();
+
+	private static final Map<String, Future<Void>> latestWrites = new HashMap<String, Future<Void>>();
+
+	static {
+		ShutdownSequence.register(ShutdownSequence.Phase.AWAIT_WRITES,
+				"complete asynchronous snippet writes", new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						awaitPendingWrites();
+						return null;
+					}
+
+				});
+	}
+
+	private AsynchronousSnippetWriter() {
+
+	}
+
+	/**
+	 * Submits the given {@code write} of a snippet to the given {@code path} to be
+	 * performed in the background, blocking if the queue of pending writes is full. The
+	 * write is performed after any writes to the same path that were submitted before
+	 * it.
+	 *
+	 * @param path the path of the snippet
+	 * @param write the write
+	 * @return a {@code Future} that completes once the write has been performed
+	 */
+	static Future<Void> submit(final String path, final Callable<Void> write) {
+		if (permits != null) {
+			try {
+				permits.acquire();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException(ex);
+			}
+		}
+		FutureTask<Void> task;
+		synchronized (pendingWrites) {
+			final Future<Void> previous = permits == null ? null : latestWrites.get(path);
+			task = new FutureTask<Void>(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					if (previous != null) {
+						awaitQuietly(previous);
+					}
+					return write.call();
+				}
+
+			}) {
+
+				@Override
+				protected void done() {
+					synchronized (pendingWrites) {
+						pendingWrites.remove(this);
+						if (latestWrites.get(path) == this) {
+							latestWrites.remove(path);
+						}
+					}
+					if (permits != null) {
+						permits.release();
+					}
+				}
+
+			};
+			pendingWrites.add(task);
+			latestWrites.put(path, task);
+		}
+		try {
+			executor.execute(task);
+		}
+		catch (RuntimeException ex) {
+			task.cancel(false);
+			throw ex;
+		}
+		return task;
+	}
+
+	/**
+	 * Waits for every write that has been submitted, including any that are submitted
+	 * while waiting, to complete.
+	 */
+	static void awaitPendingWrites() {
+		while (true) {
+			List<Future<Void>> pending;
+			synchronized (pendingWrites) {
+				if (pendingWrites.isEmpty()) {
+					return;
+				}
+				pending = new ArrayList<Future<Void>>(pendingWrites);
+			}
+			for (Future<Void> write : pending) {
+				awaitQuietly(write);
+			}
+		}
+	}
+
+	private static void awaitQuietly(Future<Void> write) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				write.get();
+				break;
+			}
+			catch (InterruptedException ex) {
+				interrupted = true;
+			}
+			catch (ExecutionException ex) {
+				// Reported to whoever submitted the write
+				break;
+			}
+			catch (CancellationException ex) {
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ThreadPoolExecutor createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "restdocs-snippet-writer");
+						thread.setDaemon(false);
+						return thread;
+					}
+
+				}, new RejectedExecutionHandler() {
+
+					@Override
+					public void rejectedExecution(Runnable runnable,
+							ThreadPoolExecutor executor) {
+						try {
+							executor.getQueue().put(runnable);
+							executor.prestartCoreThread();
+						}
+						catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							throw new RejectedExecutionException(ex);
+						}
+					}
+
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.springframework.restdocs.config.RestDocumentationContext;
+import org.springframework.restdocs.config.RestDocumentationTestExecutionListener;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SnippetStore} that holds snippets in memory and stores them in another store
+ * in a single batch. A batch is stored when a test class that produced it ends, which
+ * requires {@link RestDocumentationTestExecutionListener} to be registered, when the
+ * snippets that are being held exceed a capacity, or when the store is
+ * {@link #flush() flushed} or {@link #close() closed}. Any snippets that are still being
+ * held when the JVM shuts down are stored then. The snippets in a batch are stored in
+ * the order of their paths so that the snippets in each directory are stored together.
+ * <p>
+ * Holding snippets in memory reduces the number of round trips to slow file systems at
+ * the cost of the memory that is required to hold them and of snippets only appearing
+ * once their batch is stored.
+ *
+ * @author Andy Wilkinson
+ */
+public class BatchingSnippetStore implements SnippetStore, Flushable, Closeable {
+
+	/**
+	 * The default number of characters of snippets that are held in memory before they
+	 * are stored
+	 */
+	public static final int DEFAULT_CAPACITY = 8 * 1024 * 1024;
+
+	private final Object flushMonitor = new Object();
+
+	private final SnippetStore delegate;
+
+	private final int capacity;
+
+	private Map<String, String> snippets = new TreeMap<String, String>();
+
+	private int size;
+
+	/**
+	 * Creates a new {@code BatchingSnippetStore} that will store snippets in the given
+	 * {@code delegate} with the {@link #DEFAULT_CAPACITY default capacity}.
+	 *
+	 * @param delegate the store in which batches of snippets are stored
+	 */
+	public BatchingSnippetStore(SnippetStore delegate) {
+		this(delegate, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@code BatchingSnippetStore} that will store snippets in the given
+	 * {@code delegate} once they exceed the given {@code capacity}, or when the test
+	 * class that produced them ends.
+	 *
+	 * @param delegate the store in which batches of snippets are stored
+	 * @param capacity the number of characters of snippets that are held in memory
+	 */
+	public BatchingSnippetStore(SnippetStore delegate, int capacity) {
+		Assert.notNull(delegate, "Delegate must not be null");
+		Assert.isTrue(capacity >= 0, "Capacity must not be negative");
+		this.delegate = delegate;
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		RestDocumentationContext.registerDeferredOutput(this);
+		boolean full;
+		synchronized (this) {
+			String previous = this.snippets.put(path, snippet.toString());
+			if (previous != null) {
+				this.size -= previous.length();
+			}
+			this.size += snippet.length();
+			full = this.size > this.capacity;
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	/**
+	 * Stores the snippets that are being held in memory in the delegate store.
+	 *
+	 * @throws IOException if a snippet cannot be stored
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (this.flushMonitor) {
+			Map<String, String> batch;
+			synchronized (this) {
+				batch = this.snippets;
+				this.snippets = new TreeMap<String, String>();
+				this.size = 0;
+			}
+			for (Entry<String, String> snippet : batch.entrySet()) {
+				this.delegate.store(snippet.getKey(), snippet.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Stores the snippets that are being held in memory in the delegate store.
+	 *
+	 * @throws IOException if a snippet cannot be stored
+	 * @see #flush()
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+}
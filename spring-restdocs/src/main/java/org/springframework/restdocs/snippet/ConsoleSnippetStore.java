@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link SnippetStore} that writes snippets to the console. Each snippet is preceded
+ * by a line that identifies its path and followed by a blank line. A snippet and its
+ * label are written to {@link System#out} while holding the stream's lock so that
+ * snippets that are stored concurrently are not interleaved. The stream is flushed but
+ * never closed. Snippets are encoded using the platform's default charset.
+ *
+ * @author Andy Wilkinson
+ */
+public class ConsoleSnippetStore implements SnippetStore {
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		Charset charset = Charset.defaultCharset();
+		byte[] label = ("==> " + path + " <==" + LINE_SEPARATOR).getBytes(charset);
+		byte[] separator = LINE_SEPARATOR.getBytes(charset);
+		SnippetBuffer buffer = SnippetBuffer.from(snippet);
+		try {
+			PrintStream out = System.out;
+			synchronized (out) {
+				out.write(label);
+				buffer.writeTo(out, charset);
+				if (!endsWithLineSeparator(buffer)) {
+					out.write(separator);
+				}
+				out.write(separator);
+				out.flush();
+			}
+		}
+		finally {
+			if (buffer != snippet) {
+				buffer.release();
+			}
+		}
+	}
+
+	private boolean endsWithLineSeparator(CharSequence snippet) {
+		return snippet.length() > 0 && snippet.charAt(snippet.length() - 1) == '\n';
+	}
+
+}
@@ -23,8 +23,19 @@ import java.util.Properties;
 
 import org.springframework.util.StringUtils;
 
+/**
+ * The properties that configure the output of the documentation. They are read from
+ * {@code documentation.properties} on the classpath, which is loaded once, and can be
+ * overridden by system properties, which are consulted every time a property is read.
+ *
+ * @author Andy Wilkinson
+ */
 class DocumentationProperties {
 
+	private static final String OUTPUT_DIR_PROPERTY = "org.springframework.restdocs.outputDir";
+
+	private static volatile DocumentationProperties instance;
+
 	private final Properties properties = new Properties();
 
 	DocumentationProperties() {
@@ -47,12 +58,20 @@ class DocumentationProperties {
 				}
 			}
 		}
-		this.properties.putAll(System.getProperties());
+	}
+
+	static DocumentationProperties getInstance() {
+		DocumentationProperties properties = instance;
+		if (properties == null) {
+			properties = new DocumentationProperties();
+			instance = properties;
+		}
+		return properties;
 	}
 
 	File getOutputDir() {
-		String outputDir = this.properties
-				.getProperty("org.springframework.restdocs.outputDir");
+		String outputDir = System.getProperty(OUTPUT_DIR_PROPERTY,
+				this.properties.getProperty(OUTPUT_DIR_PROPERTY));
 		if (StringUtils.hasText(outputDir)) {
 			return new File(outputDir).getAbsoluteFile();
 		}
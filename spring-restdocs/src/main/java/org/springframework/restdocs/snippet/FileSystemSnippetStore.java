@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link SnippetStore} that writes each snippet to a file. Snippets with a relative
+ * path are written beneath the output directory that is configured using the
+ * {@code org.springframework.restdocs.outputDir} property. If no output directory has
+ * been configured, they are written to the {@link ConsoleSnippetStore console} instead.
+ * Snippets are encoded using the platform's default charset.
+ * <p>
+ * A file that already contains the snippet is left untouched. Other files are replaced
+ * atomically so that a snippet is never left partially written. Output directories are
+ * only created, and cleaned of stale temporary files, the first time that a snippet is
+ * written to them.
+ *
+ * @author Andy Wilkinson
+ */
+public class FileSystemSnippetStore implements SnippetStore {
+
+	private static final long STALE_TEMPORARY_FILE_AGE_MILLIS = 60 * 1000;
+
+	private final OutputFileResolver outputFileResolver = new OutputFileResolver();
+
+	private final Set<File> createdDirectories = Collections
+			.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+	private final ConsoleSnippetStore consoleStore = new ConsoleSnippetStore();
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		File outputFile = this.outputFileResolver.resolveFile(path);
+		if (outputFile == null) {
+			this.consoleStore.store(path, snippet);
+			return;
+		}
+		SnippetBuffer buffer = SnippetBuffer.from(snippet);
+		try {
+			writeToFile(outputFile, buffer);
+		}
+		finally {
+			if (buffer != snippet) {
+				buffer.release();
+			}
+		}
+	}
+
+	private void writeToFile(File outputFile, SnippetBuffer buffer) throws IOException {
+		File parent = outputFile.getParentFile();
+		if (!this.createdDirectories.contains(parent)) {
+			createDirectory(parent);
+		}
+		try {
+			buffer.writeTo(outputFile, Charset.defaultCharset());
+		}
+		catch (IOException ex) {
+			if (parent.isDirectory()) {
+				throw ex;
+			}
+			// The directory has been removed since it was created
+			createDirectory(parent);
+			buffer.writeTo(outputFile, Charset.defaultCharset());
+		}
+	}
+
+	private void createDirectory(File directory) {
+		// mkdirs() fails if another thread creates the directory at the same time
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			throw new IllegalStateException("Failed to create directory '" + directory
+					+ "'");
+		}
+		deleteStaleTemporaryFiles(directory);
+		this.createdDirectories.add(directory);
+	}
+
+	/**
+	 * Deletes temporary files that were left behind by a JVM that was killed while it was
+	 * writing a snippet. Recent temporary files are left alone as they may be in use by
+	 * another JVM that is writing to the same directory.
+	 */
+	private void deleteStaleTemporaryFiles(File directory) {
+		final long staleBefore = System.currentTimeMillis()
+				- STALE_TEMPORARY_FILE_AGE_MILLIS;
+		File[] staleFiles = directory.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File file) {
+				return SnippetBuffer.isTemporaryFile(file)
+						&& file.lastModified() < staleBefore;
+			}
+
+		});
+		if (staleFiles != null) {
+			for (File staleFile : staleFiles) {
+				staleFile.delete();
+			}
+		}
+	}
+
+}
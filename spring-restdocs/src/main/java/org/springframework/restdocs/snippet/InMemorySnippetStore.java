@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link SnippetStore} that holds snippets in memory. Useful for testing the
+ * generation of documentation and for processing snippets without writing them to disk.
+ *
+ * @author Andy Wilkinson
+ */
+public class InMemorySnippetStore implements SnippetStore {
+
+	private final ConcurrentMap<String, String> snippets = new ConcurrentHashMap<String, String>();
+
+	@Override
+	public void store(String path, CharSequence snippet) {
+		this.snippets.put(path, snippet.toString());
+	}
+
+	/**
+	 * Returns the snippet that has been stored at the given {@code path}.
+	 *
+	 * @param path the path of the snippet
+	 * @return the snippet, or {@code null} if no snippet has been stored at the path
+	 */
+	public String getSnippet(String path) {
+		return this.snippets.get(path);
+	}
+
+	/**
+	 * Returns a snapshot of the snippets that have been stored, keyed by path and
+	 * ordered by path.
+	 *
+	 * @return the snippets
+	 */
+	public Map<String, String> getSnippets() {
+		return Collections.unmodifiableMap(new TreeMap<String, String>(this.snippets));
+	}
+
+	/**
+	 * Removes all of the snippets that have been stored.
+	 */
+	public void clear() {
+		this.snippets.clear();
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SnippetStore} that appends snippets to a memory-mapped journal. Snippets with
+ * an absolute path are written to the file system instead. Snippets are encoded using
+ * the platform's default charset.
+ * <p>
+ * Each JVM appends its snippets to its own part of the journal. Once every JVM has
+ * exited, the journal must be {@link SnippetJournal#extract(File, File) extracted}.
+ *
+ * @author Andy Wilkinson
+ * @see SnippetJournal
+ */
+public class JournalSnippetStore implements SnippetStore {
+
+	private final FileSystemSnippetStore fileSystemStore = new FileSystemSnippetStore();
+
+	private final File journal;
+
+	/**
+	 * Creates a new {@code JournalSnippetStore} that will append snippets to the given
+	 * {@code journal}.
+	 *
+	 * @param journal the journal
+	 */
+	public JournalSnippetStore(File journal) {
+		Assert.notNull(journal, "Journal must not be null");
+		this.journal = journal.getAbsoluteFile();
+	}
+
+	/**
+	 * Returns the journal to which snippets are appended.
+	 *
+	 * @return the journal
+	 */
+	public File getJournal() {
+		return this.journal;
+	}
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		if (new File(path).isAbsolute()) {
+			this.fileSystemStore.store(path, snippet);
+			return;
+		}
+		SnippetBuffer buffer = SnippetBuffer.from(snippet);
+		try {
+			SnippetJournal.append(this.journal, path, buffer, Charset.defaultCharset());
+		}
+		finally {
+			if (buffer != snippet) {
+				buffer.release();
+			}
+		}
+	}
+
+}
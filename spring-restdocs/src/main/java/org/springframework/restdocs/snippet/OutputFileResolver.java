@@ -17,17 +17,24 @@
 package org.springframework.restdocs.snippet;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.springframework.restdocs.config.RestDocumentationContext;
+import org.springframework.util.StringUtils;
 
 /**
  * {@code OutputFileResolver} resolves an absolute output file based on the current
  * configuration and context.
+ * <p>
+ * Each output directory template is parsed once and the names that are derived from a
+ * test method are computed once per method, so resolving a snippet's output file only
+ * has to look up and join the parts that are already known.
  * 
  * @author Andy Wilkinson
  */
@@ -35,53 +42,73 @@ class OutputFileResolver {
 
 	private static final Pattern CAMEL_CASE_PATTERN = Pattern.compile("([A-Z])");
 
-	File resolve(String outputDirectory, String fileName) {
-		Map<String, String> replacements = createReplacements();
-		String path = outputDirectory;
-		for (Entry<String, String> replacement : replacements.entrySet()) {
-			while (path.contains(replacement.getKey())) {
-				if (replacement.getValue() == null) {
-					throw new IllegalStateException("No replacement is available for "
-							+ replacement.getKey());
-				}
-				else {
-					path = path.replace(replacement.getKey(), replacement.getValue());
-				}
-			}
-		}
+	private static final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+	private static final ConcurrentMap<Method, MethodNames> methodNames = new ConcurrentHashMap<Method, MethodNames>();
+
+	private final DocumentationProperties properties = DocumentationProperties
+			.getInstance();
+
+	/**
+	 * Resolves the path of the file with the given {@code fileName} in the given
+	 * {@code outputDirectory}, replacing any placeholders in the output directory using
+	 * the given {@code context}. Path segments are separated by {@code /}. The path is
+	 * relative to the configured output directory unless the output directory is
+	 * absolute.
+	 *
+	 * @param outputDirectory the output directory
+	 * @param fileName the name of the file
+	 * @param context the context, or {@code null}
+	 * @return the path
+	 */
+	String resolvePath(String outputDirectory, String fileName,
+			RestDocumentationContext context) {
+		String path = getTemplate(outputDirectory).expand(context);
+		return StringUtils.cleanPath(StringUtils.hasLength(path) ? path + "/" + fileName
+				: fileName);
+	}
 
-		File outputFile = new File(path, fileName);
+	/**
+	 * Resolves the file for the given
+	 * {@link #resolvePath(String, String, RestDocumentationContext) path}.
+	 *
+	 * @param path the path
+	 * @return the file, or {@code null} if the path is relative and no output directory
+	 * has been configured
+	 */
+	File resolveFile(String path) {
+		File outputFile = new File(path);
 		if (!outputFile.isAbsolute()) {
 			outputFile = makeRelativeToConfiguredOutputDir(outputFile);
 		}
 		return outputFile;
 	}
 
-	private Map<String, String> createReplacements() {
-		RestDocumentationContext context = RestDocumentationContext.currentContext();
-
-		Map<String, String> replacements = new HashMap<String, String>();
-		replacements.put("{methodName}", context == null ? null : context.getTestMethod()
-				.getName());
-		replacements.put("{method-name}", context == null ? null
-				: camelCaseToDash(context.getTestMethod().getName()));
-		replacements.put("{method_name}", context == null ? null
-				: camelCaseToUnderscore(context.getTestMethod().getName()));
-		replacements.put("{step}",
-				context == null ? null : Integer.toString(context.getStepCount()));
-
-		return replacements;
-	}
-
-	private String camelCaseToDash(String string) {
-		return camelCaseToSeparator(string, "-");
+	private Template getTemplate(String outputDirectory) {
+		Template template = templates.get(outputDirectory);
+		if (template == null) {
+			template = new Template(outputDirectory);
+			Template existing = templates.putIfAbsent(outputDirectory, template);
+			if (existing != null) {
+				template = existing;
+			}
+		}
+		return template;
 	}
 
-	private String camelCaseToUnderscore(String string) {
-		return camelCaseToSeparator(string, "_");
+	private static MethodNames getMethodNames(Method method) {
+		MethodNames names = methodNames.get(method);
+		if (names == null) {
+			names = new MethodNames(method.getName());
+			MethodNames existing = methodNames.putIfAbsent(method, names);
+			if (existing != null) {
+				names = existing;
+			}
+		}
+		return names;
 	}
 
-	private String camelCaseToSeparator(String string, String separator) {
+	private static String camelCaseToSeparator(String string, String separator) {
 		Matcher matcher = CAMEL_CASE_PATTERN.matcher(string);
 		StringBuffer result = new StringBuffer();
 		while (matcher.find()) {
@@ -92,10 +119,127 @@ class OutputFileResolver {
 	}
 
 	private File makeRelativeToConfiguredOutputDir(File outputFile) {
-		File configuredOutputDir = new DocumentationProperties().getOutputDir();
+		File configuredOutputDir = this.properties.getOutputDir();
 		if (configuredOutputDir != null) {
 			return new File(configuredOutputDir, outputFile.getPath());
 		}
 		return null;
 	}
+
+	/**
+	 * The placeholders that can be used in an output directory.
+	 */
+	private enum Placeholder {
+
+		METHOD_NAME("{methodName}"),
+
+		DASH_SEPARATED_METHOD_NAME("{method-name}"),
+
+		UNDERSCORE_SEPARATED_METHOD_NAME("{method_name}"),
+
+		STEP("{step}");
+
+		private final String text;
+
+		private Placeholder(String text) {
+			this.text = text;
+		}
+
+		private String getReplacement(RestDocumentationContext context) {
+			if (context == null || (this != STEP && context.getTestMethod() == null)) {
+				throw new IllegalStateException("No replacement is available for "
+						+ this.text);
+			}
+			if (this == STEP) {
+				return Integer.toString(context.getStepCount());
+			}
+			MethodNames names = getMethodNames(context.getTestMethod());
+			if (this == DASH_SEPARATED_METHOD_NAME) {
+				return names.dashSeparated;
+			}
+			if (this == UNDERSCORE_SEPARATED_METHOD_NAME) {
+				return names.underscoreSeparated;
+			}
+			return names.name;
+		}
+
+		private static Placeholder at(String string, int index) {
+			for (Placeholder placeholder : values()) {
+				if (string.startsWith(placeholder.text, index)) {
+					return placeholder;
+				}
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * An output directory that has been split into literal text and placeholders.
+	 */
+	private static final class Template {
+
+		private final String literal;
+
+		private final List<Object> parts = new ArrayList<Object>();
+
+		private Template(String outputDirectory) {
+			int start = 0;
+			int index = outputDirectory.indexOf('{');
+			while (index >= 0) {
+				Placeholder placeholder = Placeholder.at(outputDirectory, index);
+				if (placeholder != null) {
+					if (index > start) {
+						this.parts.add(outputDirectory.substring(start, index));
+					}
+					this.parts.add(placeholder);
+					start = index + placeholder.text.length();
+					index = outputDirectory.indexOf('{', start);
+				}
+				else {
+					index = outputDirectory.indexOf('{', index + 1);
+				}
+			}
+			if (start < outputDirectory.length()) {
+				this.parts.add(outputDirectory.substring(start));
+			}
+			this.literal = start == 0 ? outputDirectory : null;
+		}
+
+		private String expand(RestDocumentationContext context) {
+			if (this.literal != null) {
+				return this.literal;
+			}
+			StringBuilder path = new StringBuilder();
+			for (Object part : this.parts) {
+				if (part instanceof Placeholder) {
+					path.append(((Placeholder) part).getReplacement(context));
+				}
+				else {
+					path.append(part);
+				}
+			}
+			return path.toString();
+		}
+
+	}
+
+	/**
+	 * The names that are derived from a test method's name.
+	 */
+	private static final class MethodNames {
+
+		private final String name;
+
+		private final String dashSeparated;
+
+		private final String underscoreSeparated;
+
+		private MethodNames(String name) {
+			this.name = name;
+			this.dashSeparated = camelCaseToSeparator(name, "-");
+			this.underscoreSeparated = camelCaseToSeparator(name, "_");
+		}
+
+	}
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Support for files that are written in parts, each of which is written by a single JVM,
+ * and that are combined once every JVM has exited. A part is a file alongside the file to
+ * which it belongs that is named using the name of that file, an identifier of the JVM
+ * that wrote it and a sequence number.
+ *
+ * @author Andy Wilkinson
+ */
+final class PartFiles {
+
+	private static final String PART_SUFFIX = ".part";
+
+	private static final String FORK_ID = ManagementFactory.getRuntimeMXBean()
+			.getName().replaceAll("[^A-Za-z0-9]", "-");
+
+	private static final AtomicInteger partCount = new AtomicInteger();
+
+	private static final AtomicLong sequence = new AtomicLong();
+
+	private static long lastTimestamp;
+
+	private PartFiles() {
+
+	}
+
+	/**
+	 * Returns the identifier of this JVM.
+	 *
+	 * @return the identifier
+	 */
+	static String forkId() {
+		return FORK_ID;
+	}
+
+	/**
+	 * Returns the time at which something is being written to a part. The time never
+	 * goes backwards within a JVM, even if the system clock does.
+	 *
+	 * @return the time in milliseconds
+	 */
+	static synchronized long nextTimestamp() {
+		lastTimestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+		return lastTimestamp;
+	}
+
+	/**
+	 * Returns the next number in a sequence that orders everything that this JVM writes
+	 * to its parts, including things that are written at the same
+	 * {@link #nextTimestamp() time}.
+	 *
+	 * @return the sequence number
+	 */
+	static long nextSequence() {
+		return sequence.incrementAndGet();
+	}
+
+	/**
+	 * Returns a new part of the given {@code file} for this JVM.
+	 *
+	 * @param file the file
+	 * @return the part
+	 */
+	static File newPart(File file) {
+		return new File(file.getAbsoluteFile().getParentFile(), file.getName() + "."
+				+ FORK_ID + "-" + partCount.incrementAndGet() + PART_SUFFIX);
+	}
+
+	/**
+	 * Finds the parts of the given {@code file} that have been written by every JVM,
+	 * ordered by name.
+	 *
+	 * @param file the file
+	 * @return the parts
+	 */
+	static File[] findParts(final File file) {
+		File[] parts = file.getAbsoluteFile().getParentFile().listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File candidate) {
+				return candidate.isFile()
+						&& candidate.getName().startsWith(file.getName() + ".")
+						&& candidate.getName().endsWith(PART_SUFFIX);
+			}
+
+		});
+		if (parts == null) {
+			return new File[0];
+		}
+		Arrays.sort(parts);
+		return parts;
+	}
+
+}
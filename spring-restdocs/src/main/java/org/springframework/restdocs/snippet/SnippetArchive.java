@@ -0,0 +1,526 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.restdocs.config.ShutdownSequence;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Support for writing snippets into a zip archive rather than as individual files.
+ * <p>
+ * Before a run, the archive is {@link #clean(File) cleaned}, which starts a new run.
+ * Each JVM then streams the snippets that it documents into its own part of the
+ * archive. A part is a zip file alongside the archive that is completed, and marked as
+ * belonging to the current run, when the JVM exits. Once every JVM that documents the
+ * API has exited, the parts are {@link #merge(File) merged} into the archive. The
+ * archive can then be {@link #extract(File, File) extracted} in a single sequential
+ * pass so that Asciidoctor can include its snippets. Every step can be run from a build
+ * script using {@link #main(String[])}.
+ *
+ * @author Andy Wilkinson
+ */
+public final class SnippetArchive {
+
+	private static final String RUN_SUFFIX = ".run";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Map<File, Part> parts = new HashMap<File, Part>();
+
+	private static boolean shutDown;
+
+	static {
+		ShutdownSequence.register(ShutdownSequence.Phase.COMPLETE_OUTPUT,
+				"complete snippet archive", new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						synchronized (parts) {
+							shutDown = true;
+							completeParts();
+						}
+						return null;
+					}
+
+				});
+	}
+
+	private SnippetArchive() {
+
+	}
+
+	/**
+	 * Cleans the given {@code archive}, deleting it and any of its parts, and starts a
+	 * new run. Only parts that are written during that run can then be merged into the
+	 * archive.
+	 *
+	 * @param archive the archive
+	 * @throws IOException if the new run cannot be started
+	 */
+	public static void clean(File archive) throws IOException {
+		synchronized (parts) {
+			Part part = parts.remove(archive);
+			if (part != null) {
+				part.complete();
+			}
+		}
+		for (File partFile : PartFiles.findParts(archive)) {
+			partFile.delete();
+		}
+		archive.delete();
+		File directory = archive.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Failed to create directory '" + directory
+					+ "'");
+		}
+		FileCopyUtils.copy(UUID.randomUUID().toString().getBytes(UTF_8),
+				getRunFile(archive));
+	}
+
+	/**
+	 * Merges the parts of the given {@code archive} that have been written by every JVM
+	 * into the archive, replacing any existing archive, and then deletes the parts. When
+	 * a snippet has been written more than once, by one JVM or by several, the snippet
+	 * that was written last is included. Every part must belong to the current run, if
+	 * the archive was {@link #clean(File) cleaned}, or to no run, if it was not.
+	 *
+	 * @param archive the archive
+	 * @throws IOException if the parts cannot be read, a part is incomplete because the
+	 * JVM that wrote it did not exit normally, a part does not belong to the current run,
+	 * or the archive cannot be written
+	 */
+	public static void merge(File archive) throws IOException {
+		File[] partFiles = PartFiles.findParts(archive);
+		if (partFiles.length == 0) {
+			throw new FileNotFoundException("No parts of '" + archive + "' were found");
+		}
+		String run = readRun(archive);
+		for (File partFile : partFiles) {
+			assertCurrent(archive, partFile, run);
+		}
+		Map<String, LatestEntry> latestEntries = new HashMap<String, LatestEntry>();
+		int entryNumber = 0;
+		for (File partFile : partFiles) {
+			ZipInputStream input = openZip(partFile);
+			try {
+				ZipEntry entry;
+				while ((entry = input.getNextEntry()) != null) {
+					PartEntry partEntry = PartEntry.parse(partFile, entry);
+					LatestEntry latest = latestEntries.get(partEntry.name);
+					if (latest == null || latest.isOlderThan(partEntry)) {
+						latestEntries.put(partEntry.name, new LatestEntry(partEntry,
+								entryNumber));
+					}
+					entryNumber++;
+				}
+			}
+			finally {
+				input.close();
+			}
+		}
+		File merged = File.createTempFile("." + archive.getName() + ".", ".tmp",
+				archive.getAbsoluteFile().getParentFile());
+		boolean moved = false;
+		try {
+			writeLatestEntries(partFiles, latestEntries, merged);
+			Files.move(merged.toPath(), archive.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			moved = true;
+		}
+		finally {
+			if (!moved) {
+				merged.delete();
+			}
+		}
+		for (File partFile : partFiles) {
+			partFile.delete();
+		}
+		getRunFile(archive).delete();
+	}
+
+	/**
+	 * Extracts the snippets in the given {@code archive} into the given
+	 * {@code outputDirectory}, reading the archive sequentially.
+	 *
+	 * @param archive the archive
+	 * @param outputDirectory the directory into which the snippets are extracted
+	 * @throws IOException if the archive cannot be read, a snippet cannot be written, or
+	 * the archive contains a snippet that is outside of the output directory
+	 */
+	public static void extract(File archive, File outputDirectory) throws IOException {
+		SnippetExtractor extractor = new SnippetExtractor(outputDirectory);
+		ZipInputStream input = openZip(archive);
+		try {
+			ZipEntry entry;
+			while ((entry = input.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				OutputStream output = extractor.open(entry.getName());
+				try {
+					StreamUtils.copy(input, output);
+				}
+				finally {
+					output.close();
+				}
+			}
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Cleans, merges or extracts an archive. The arguments are either
+	 * {@code clean <archive>}, {@code merge <archive>} or
+	 * {@code extract <archive> <output directory>}.
+	 *
+	 * @param args the arguments
+	 * @throws IOException if the archive cannot be cleaned, merged or extracted
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 2 && "clean".equals(args[0])) {
+			clean(new File(args[1]));
+		}
+		else if (args.length == 2 && "merge".equals(args[0])) {
+			merge(new File(args[1]));
+		}
+		else if (args.length == 3 && "extract".equals(args[0])) {
+			extract(new File(args[1]), new File(args[2]));
+		}
+		else {
+			System.err.println("Usage: " + SnippetArchive.class.getName()
+					+ " clean <archive> | merge <archive>"
+					+ " | extract <archive> <output directory>");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Writes the snippet in the given {@code buffer} as an entry with the given
+	 * {@code name} in this JVM's part of the given {@code archive}. Writing a snippet
+	 * with the same name again replaces it, unless its content is unchanged in which case
+	 * it has no effect.
+	 *
+	 * @param archive the archive
+	 * @param name the name of the entry
+	 * @param buffer the buffer containing the snippet
+	 * @param charset the charset used to encode the snippet
+	 * @throws IOException if the snippet cannot be written
+	 */
+	static void write(File archive, String name, SnippetBuffer buffer, Charset charset)
+			throws IOException {
+		getPart(archive).write(name, buffer, charset);
+	}
+
+	/**
+	 * Completes the parts that have been written by this JVM. Writing to an archive
+	 * after its part has been completed starts a new part, unless the parts were
+	 * completed because the JVM is shutting down, in which case the write fails.
+	 *
+	 * @throws IOException if a part cannot be completed
+	 */
+	static void completeParts() throws IOException {
+		synchronized (parts) {
+			IOException failure = null;
+			for (Part part : parts.values()) {
+				try {
+					part.complete();
+				}
+				catch (IOException ex) {
+					if (failure == null) {
+						failure = ex;
+					}
+				}
+			}
+			parts.clear();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	private static Part getPart(File archive) throws IOException {
+		synchronized (parts) {
+			if (shutDown) {
+				throw new IllegalStateException("Cannot write to '" + archive
+						+ "' as its parts were completed when the JVM shut down");
+			}
+			Part part = parts.get(archive);
+			if (part == null) {
+				part = new Part(PartFiles.newPart(archive), readRun(archive));
+				parts.put(archive, part);
+			}
+			return part;
+		}
+	}
+
+	private static ZipInputStream openZip(File file) throws IOException {
+		return new ZipInputStream(new BufferedInputStream(new FileInputStream(file)));
+	}
+
+	private static File getRunFile(File archive) {
+		return new File(archive.getAbsoluteFile().getParentFile(), archive.getName()
+				+ RUN_SUFFIX);
+	}
+
+	private static String readRun(File archive) throws IOException {
+		File runFile = getRunFile(archive);
+		if (!runFile.isFile()) {
+			return null;
+		}
+		return new String(FileCopyUtils.copyToByteArray(runFile), UTF_8);
+	}
+
+	private static void assertCurrent(File archive, File partFile, String run)
+			throws IOException {
+		String partRun;
+		try {
+			ZipFile zipFile = new ZipFile(partFile);
+			try {
+				partRun = zipFile.getComment();
+			}
+			finally {
+				zipFile.close();
+			}
+		}
+		catch (ZipException ex) {
+			throw new IOException("Part '" + partFile + "' of '" + archive
+					+ "' is incomplete. The JVM that wrote it may not have exited "
+					+ "normally.", ex);
+		}
+		if (!ObjectUtils.nullSafeEquals(run, partRun)) {
+			throw new IOException("Part '" + partFile + "' of '" + archive
+					+ "' was not written during the current run. Clean the archive "
+					+ "before each run so that every part can be accounted for.");
+		}
+	}
+
+	private static void writeLatestEntries(File[] partFiles,
+			Map<String, LatestEntry> latestEntries, File merged) throws IOException {
+		ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream(
+				new FileOutputStream(merged)));
+		try {
+			int entryNumber = 0;
+			for (File partFile : partFiles) {
+				ZipInputStream input = openZip(partFile);
+				try {
+					ZipEntry entry;
+					while ((entry = input.getNextEntry()) != null) {
+						PartEntry partEntry = PartEntry.parse(partFile, entry);
+						LatestEntry latest = latestEntries.get(partEntry.name);
+						if (latest.entryNumber == entryNumber++) {
+							output.putNextEntry(new ZipEntry(partEntry.name));
+							StreamUtils.copy(input, output);
+							output.closeEntry();
+						}
+					}
+				}
+				finally {
+					input.close();
+				}
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * The part of an archive that is written by this JVM.
+	 */
+	private static final class Part {
+
+		private final ZipOutputStream output;
+
+		private final EntryOutputStream entryOutput;
+
+		private final Map<String, Long> checksums = new HashMap<String, Long>();
+
+		private Part(File file, String run) throws IOException {
+			File directory = file.getParentFile();
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IllegalStateException("Failed to create directory '"
+						+ directory + "'");
+			}
+			this.output = new ZipOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			if (run != null) {
+				this.output.setComment(run);
+			}
+			this.entryOutput = new EntryOutputStream(this.output);
+		}
+
+		private synchronized void write(String name, SnippetBuffer buffer,
+				Charset charset) throws IOException {
+			CheckedOutputStream checkedOutput = new CheckedOutputStream(
+					DiscardingOutputStream.INSTANCE, new CRC32());
+			buffer.writeTo(checkedOutput, charset);
+			long checksum = checkedOutput.getChecksum().getValue();
+			Long previousChecksum = this.checksums.get(name);
+			if (previousChecksum != null && previousChecksum == checksum) {
+				return;
+			}
+			this.output.putNextEntry(new ZipEntry(PartEntry.name(name)));
+			buffer.writeTo(this.entryOutput, charset);
+			this.output.closeEntry();
+			this.checksums.put(name, checksum);
+		}
+
+		private synchronized void complete() throws IOException {
+			this.output.close();
+		}
+
+	}
+
+	/**
+	 * An entry in a part of an archive. Each time a snippet is written, it is added to
+	 * the part as a new entry whose name is prefixed with the time at which it was
+	 * written and a sequence number, so that the snippet that was written last can be
+	 * identified when the parts are merged.
+	 */
+	private static final class PartEntry {
+
+		private final String name;
+
+		private final long timestamp;
+
+		private final long sequence;
+
+		private PartEntry(String name, long timestamp, long sequence) {
+			this.name = name;
+			this.timestamp = timestamp;
+			this.sequence = sequence;
+		}
+
+		private static String name(String snippetName) {
+			return PartFiles.nextTimestamp() + "-" + PartFiles.nextSequence() + "/"
+					+ snippetName;
+		}
+
+		private static PartEntry parse(File partFile, ZipEntry entry) throws IOException {
+			String name = entry.getName();
+			int separator = name.indexOf('-');
+			int end = name.indexOf('/');
+			if (separator > 0 && end > separator) {
+				try {
+					return new PartEntry(name.substring(end + 1), Long.parseLong(name
+							.substring(0, separator)), Long.parseLong(name.substring(
+							separator + 1, end)));
+				}
+				catch (NumberFormatException ex) {
+					// Fall through
+				}
+			}
+			throw new IOException("Part '" + partFile + "' contains an unexpected entry '"
+					+ name + "'");
+		}
+
+	}
+
+	/**
+	 * The latest entry for a snippet that has been read from an archive's parts.
+	 */
+	private static final class LatestEntry {
+
+		private final long timestamp;
+
+		private final long sequence;
+
+		private final int entryNumber;
+
+		private LatestEntry(PartEntry entry, int entryNumber) {
+			this.timestamp = entry.timestamp;
+			this.sequence = entry.sequence;
+			this.entryNumber = entryNumber;
+		}
+
+		private boolean isOlderThan(PartEntry entry) {
+			if (this.timestamp != entry.timestamp) {
+				return this.timestamp < entry.timestamp;
+			}
+			return this.sequence < entry.sequence;
+		}
+
+	}
+
+	/**
+	 * Writes an entry's content to the archive without flushing the archive after every
+	 * snippet.
+	 */
+	private static final class EntryOutputStream extends OutputStream {
+
+		private final OutputStream delegate;
+
+		private EntryOutputStream(OutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.delegate.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.delegate.write(b, off, len);
+		}
+
+	}
+
+	private static final class DiscardingOutputStream extends OutputStream {
+
+		private static final DiscardingOutputStream INSTANCE = new DiscardingOutputStream();
+
+		@Override
+		public void write(int b) {
+
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+
+		}
+
+	}
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.restdocs.util.VirtualThreads;
+
+/**
+ * A {@link Writer} into which a snippet is rendered in memory so that it can then be
+ * written out in a single operation. Buffers are reused by the thread that acquired them
+ * so that rendering a snippet does not allocate new buffers each time. A buffer may be
+ * handed to another thread to be written and released.
+ * <p>
+ * A thread whose own buffer is already in use, such as one that is rendering a snippet
+ * while its previous snippet is still being written asynchronously, and virtual
+ * threads, which are not reused, take their buffers from a small shared pool instead.
+ *
+ * @author Andy Wilkinson
+ */
+final class SnippetBuffer extends Writer implements CharSequence {
+
+	private static final int INITIAL_CAPACITY = 8 * 1024;
+
+	private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+	private static final int COMPARISON_CHUNK_SIZE = 8 * 1024;
+
+	private static final String TEMPORARY_FILE_PREFIX = ".";
+
+	private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	private static final ThreadLocal<SnippetBuffer> buffers = new ThreadLocal<SnippetBuffer>() {
+
+		@Override
+		protected SnippetBuffer initialValue() {
+			return new SnippetBuffer(false);
+		}
+
+	};
+
+	private static final BlockingQueue<SnippetBuffer> pool = new ArrayBlockingQueue<SnippetBuffer>(
+			MAX_POOLED_BUFFERS);
+
+	private StringBuilder chars = new StringBuilder(INITIAL_CAPACITY);
+
+	private ByteBuffer bytes;
+
+	private CharsetEncoder encoder;
+
+	private volatile boolean inUse;
+
+	private final boolean pooled;
+
+	private SnippetBuffer(boolean pooled) {
+		this.pooled = pooled;
+	}
+
+	/**
+	 * Acquires an empty buffer. The buffer of the current thread is returned unless it
+	 * is already in use or the thread is a virtual thread, in which case a buffer from
+	 * the shared pool, or a new buffer if the pool is empty, is returned. The buffer must
+	 * be {@link #release() released} once it is no longer required.
+	 *
+	 * @return the buffer
+	 */
+	static SnippetBuffer acquire() {
+		SnippetBuffer buffer = null;
+		if (!VirtualThreads.isVirtual(Thread.currentThread())) {
+			buffer = buffers.get();
+			if (buffer.inUse) {
+				buffer = null;
+			}
+		}
+		if (buffer == null) {
+			buffer = pool.poll();
+			if (buffer == null) {
+				buffer = new SnippetBuffer(true);
+			}
+		}
+		buffer.inUse = true;
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer containing the given {@code content}. If the content is a buffer,
+	 * it is returned as it is. Otherwise, a buffer is acquired and the content is written
+	 * to it, in which case the caller must release the returned buffer.
+	 *
+	 * @param content the content
+	 * @return the buffer
+	 */
+	static SnippetBuffer from(CharSequence content) {
+		if (content instanceof SnippetBuffer) {
+			return (SnippetBuffer) content;
+		}
+		SnippetBuffer buffer = acquire();
+		buffer.chars.append(content);
+		return buffer;
+	}
+
+	/**
+	 * Releases this buffer so that it can be reused. Buffers that have grown unusually
+	 * large are discarded rather than being retained. A buffer from the shared pool is
+	 * returned to it, unless the pool is full.
+	 */
+	void release() {
+		this.chars.setLength(0);
+		if (this.chars.capacity() > MAX_RETAINED_CAPACITY) {
+			this.chars = new StringBuilder(INITIAL_CAPACITY);
+		}
+		if (this.bytes != null && this.bytes.capacity() > MAX_RETAINED_CAPACITY) {
+			this.bytes = null;
+		}
+		this.inUse = false;
+		if (this.pooled) {
+			pool.offer(this);
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		this.chars.append(cbuf, off, len);
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		this.chars.append(str, off, off + len);
+	}
+
+	@Override
+	public void flush() {
+
+	}
+
+	@Override
+	public void close() {
+
+	}
+
+	@Override
+	public int length() {
+		return this.chars.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		return this.chars.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return this.chars.subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return this.chars.toString();
+	}
+
+	/**
+	 * Returns the characters that have been written to this buffer.
+	 *
+	 * @return the characters
+	 */
+	CharSequence getContent() {
+		return this.chars;
+	}
+
+	/**
+	 * Writes the buffered snippet to the given {@code file}, replacing any existing
+	 * content. If the file already contains the snippet, it is left untouched so that its
+	 * timestamp is preserved. Otherwise, the snippet is written to a temporary file in
+	 * the same directory, using a single write wherever possible, that is then
+	 * atomically moved into place. The file therefore never contains a partially written snippet,
+	 * even if the JVM is killed while it is being written.
+	 *
+	 * @param file the file
+	 * @param charset the charset used to encode the snippet
+	 * @return {@code true} if the file was written, {@code false} if it was unchanged
+	 * @throws IOException if the file cannot be written
+	 * @see #isTemporaryFile(File)
+	 */
+	boolean writeTo(File file, Charset charset) throws IOException {
+		ByteBuffer encoded = encode(charset);
+		if (hasContent(file, encoded)) {
+			return false;
+		}
+		File temporaryFile = File.createTempFile(TEMPORARY_FILE_PREFIX + file.getName()
+				+ ".", TEMPORARY_FILE_SUFFIX, file.getParentFile());
+		boolean moved = false;
+		try {
+			FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+			try {
+				FileChannel channel = outputStream.getChannel();
+				while (encoded.hasRemaining()) {
+					channel.write(encoded);
+				}
+			}
+			finally {
+				outputStream.close();
+			}
+			move(temporaryFile, file);
+			moved = true;
+		}
+		finally {
+			if (!moved) {
+				temporaryFile.delete();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether or not the given {@code file} is a temporary file that is, or was,
+	 * used to {@link #writeTo(File, Charset) write} a snippet.
+	 *
+	 * @param file the file
+	 * @return {@code true} if the file is a temporary file
+	 */
+	static boolean isTemporaryFile(File file) {
+		String name = file.getName();
+		return name.startsWith(TEMPORARY_FILE_PREFIX)
+				&& name.endsWith(TEMPORARY_FILE_SUFFIX);
+	}
+
+	private static void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException ex) {
+			Files.move(source.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private boolean hasContent(File file, ByteBuffer encoded) throws IOException {
+		if (!file.isFile() || file.length() != encoded.remaining()) {
+			return false;
+		}
+		byte[] expected = encoded.array();
+		int offset = encoded.arrayOffset() + encoded.position();
+		int end = offset + encoded.remaining();
+		byte[] existing = new byte[COMPARISON_CHUNK_SIZE];
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = inputStream.read(existing)) != -1) {
+				for (int i = 0; i < read; i++) {
+					if (offset == end || existing[i] != expected[offset++]) {
+						return false;
+					}
+				}
+			}
+			return offset == end;
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Writes the buffered snippet to the given {@code outputStream} and flushes it. The
+	 * stream is not closed.
+	 *
+	 * @param outputStream the output stream
+	 * @param charset the charset used to encode the snippet
+	 * @throws IOException if the snippet cannot be written
+	 */
+	void writeTo(OutputStream outputStream, Charset charset) throws IOException {
+		ByteBuffer encoded = encode(charset);
+		outputStream.write(encoded.array(), encoded.arrayOffset() + encoded.position(),
+				encoded.remaining());
+		outputStream.flush();
+	}
+
+	/**
+	 * Encodes the buffered snippet using the given {@code charset}. The returned bytes
+	 * are only valid until this buffer is next encoded or released.
+	 *
+	 * @param charset the charset
+	 * @return the encoded snippet
+	 */
+	ByteBuffer encode(Charset charset) {
+		if (this.encoder == null || !this.encoder.charset().equals(charset)) {
+			this.encoder = charset.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+		int maxLength = (int) Math.ceil(this.chars.length()
+				* (double) this.encoder.maxBytesPerChar());
+		if (this.bytes == null || this.bytes.capacity() < maxLength) {
+			this.bytes = ByteBuffer.allocate(Math.max(maxLength, INITIAL_CAPACITY));
+		}
+		this.bytes.clear();
+		this.encoder.reset();
+		this.encoder.encode(CharBuffer.wrap(this.chars), this.bytes, true);
+		this.encoder.flush(this.bytes);
+		this.bytes.flip();
+		return this.bytes;
+	}
+
+}
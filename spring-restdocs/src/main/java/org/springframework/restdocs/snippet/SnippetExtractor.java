@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Extracts snippets into the usual directory layout beneath an output directory.
+ *
+ * @author Andy Wilkinson
+ */
+final class SnippetExtractor {
+
+	private final File root;
+
+	private final String rootPath;
+
+	private File createdDirectory;
+
+	SnippetExtractor(File outputDirectory) throws IOException {
+		this.root = outputDirectory.getCanonicalFile();
+		this.rootPath = this.root.getPath() + File.separator;
+	}
+
+	/**
+	 * Opens a stream to which the snippet with the given {@code path} can be written,
+	 * creating its directory if necessary.
+	 *
+	 * @param path the path of the snippet relative to the output directory
+	 * @return the stream
+	 * @throws IOException if the stream cannot be opened or the path is outside of the
+	 * output directory
+	 */
+	OutputStream open(String path) throws IOException {
+		File file = new File(this.root, path).getCanonicalFile();
+		if (!file.getPath().startsWith(this.rootPath)) {
+			throw new IOException("Snippet '" + path
+					+ "' is outside of the output directory '" + this.root + "'");
+		}
+		File directory = file.getParentFile();
+		if (!directory.equals(this.createdDirectory)) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IllegalStateException("Failed to create directory '"
+						+ directory + "'");
+			}
+			this.createdDirectory = directory;
+		}
+		return new FileOutputStream(file);
+	}
+
+}
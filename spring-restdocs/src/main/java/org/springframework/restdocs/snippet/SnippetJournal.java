@@ -0,0 +1,433 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+
+import org.springframework.restdocs.config.ShutdownSequence;
+
+/**
+ * Support for writing snippets to an append-only journal rather than as individual
+ * files.
+ * <p>
+ * Each JVM appends the snippets that it documents to its own part of the journal. A part
+ * is a file alongside the journal that is memory-mapped in chunks so that appending a
+ * snippet is a copy into memory. A part is a sequence of records, each of which contains
+ * a snippet's path, the time at which it was written and a sequence number, a CRC-32
+ * checksum of its content, and its content. A record's path length is written last, and
+ * a part ends at the first record with a path length of zero, so a record that was only
+ * partially written when a JVM was killed is ignored.
+ * <p>
+ * Once every JVM that documents the API has exited, the journal is
+ * {@link #extract(File, File) extracted} into the usual directory layout and its parts
+ * are deleted. Extraction can be run from a build script using {@link #main(String[])}.
+ *
+ * @author Andy Wilkinson
+ */
+public final class SnippetJournal {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Map<File, Part> parts = new HashMap<File, Part>();
+
+	private static boolean shutDown;
+
+	static {
+		ShutdownSequence.register(ShutdownSequence.Phase.COMPLETE_OUTPUT,
+				"complete snippet journal", new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						synchronized (parts) {
+							shutDown = true;
+							completeParts();
+						}
+						return null;
+					}
+
+				});
+	}
+
+	private SnippetJournal() {
+
+	}
+
+	/**
+	 * Extracts the snippets in every part of the given {@code journal} into the given
+	 * {@code outputDirectory} and then deletes the parts. When a snippet has been written
+	 * more than once, by one JVM or by several, the snippet that was written last is
+	 * extracted. This JVM's part of the journal is completed before it is extracted.
+	 *
+	 * @param journal the journal
+	 * @param outputDirectory the directory into which the snippets are extracted
+	 * @throws IOException if the journal cannot be read, it is corrupt, or a snippet
+	 * cannot be written
+	 */
+	public static void extract(File journal, File outputDirectory) throws IOException {
+		completePart(journal);
+		File[] partFiles = PartFiles.findParts(journal);
+		if (partFiles.length == 0) {
+			throw new FileNotFoundException("No parts of '" + journal + "' were found");
+		}
+		Map<String, LatestRecord> latestRecords = new HashMap<String, LatestRecord>();
+		int recordNumber = 0;
+		for (File partFile : partFiles) {
+			RecordReader reader = new RecordReader(partFile);
+			try {
+				while (reader.next()) {
+					LatestRecord latest = latestRecords.get(reader.path);
+					if (latest == null || latest.isOlderThan(reader)) {
+						latestRecords.put(reader.path, new LatestRecord(reader,
+								recordNumber));
+					}
+					recordNumber++;
+					reader.skipContent();
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		SnippetExtractor extractor = new SnippetExtractor(outputDirectory);
+		recordNumber = 0;
+		for (File partFile : partFiles) {
+			RecordReader reader = new RecordReader(partFile);
+			try {
+				while (reader.next()) {
+					if (latestRecords.get(reader.path).recordNumber == recordNumber++) {
+						OutputStream output = extractor.open(reader.path);
+						try {
+							output.write(reader.readContent());
+						}
+						finally {
+							output.close();
+						}
+					}
+					else {
+						reader.skipContent();
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		for (File partFile : partFiles) {
+			partFile.delete();
+		}
+	}
+
+	/**
+	 * Extracts a journal. The arguments are {@code extract <journal> <output directory>}.
+	 *
+	 * @param args the arguments
+	 * @throws IOException if the journal cannot be extracted
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 3 && "extract".equals(args[0])) {
+			extract(new File(args[1]), new File(args[2]));
+		}
+		else {
+			System.err.println("Usage: " + SnippetJournal.class.getName()
+					+ " extract <journal> <output directory>");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Appends the snippet in the given {@code buffer} with the given {@code path} to this
+	 * JVM's part of the given {@code journal}.
+	 *
+	 * @param journal the journal
+	 * @param path the path of the snippet
+	 * @param buffer the buffer containing the snippet
+	 * @param charset the charset used to encode the snippet
+	 * @throws IOException if the snippet cannot be appended
+	 */
+	static void append(File journal, String path, SnippetBuffer buffer, Charset charset)
+			throws IOException {
+		getPart(journal).append(path, buffer.encode(charset));
+	}
+
+	/**
+	 * Completes the parts that have been written by this JVM, truncating each to the
+	 * length of the records that it contains. Appending to a journal after its part has
+	 * been completed starts a new part, unless the parts were completed because the JVM
+	 * is shutting down, in which case the append fails.
+	 *
+	 * @throws IOException if a part cannot be completed
+	 */
+	static void completeParts() throws IOException {
+		synchronized (parts) {
+			IOException failure = null;
+			for (Part part : parts.values()) {
+				try {
+					part.complete();
+				}
+				catch (IOException ex) {
+					if (failure == null) {
+						failure = ex;
+					}
+				}
+			}
+			parts.clear();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	private static void completePart(File journal) throws IOException {
+		synchronized (parts) {
+			Part part = parts.remove(journal.getAbsoluteFile());
+			if (part != null) {
+				part.complete();
+			}
+		}
+	}
+
+	private static Part getPart(File journal) throws IOException {
+		synchronized (parts) {
+			if (shutDown) {
+				throw new IllegalStateException("Cannot write to '" + journal
+						+ "' as its parts were completed when the JVM shut down");
+			}
+			Part part = parts.get(journal.getAbsoluteFile());
+			if (part == null) {
+				part = new Part(PartFiles.newPart(journal));
+				parts.put(journal.getAbsoluteFile(), part);
+			}
+			return part;
+		}
+	}
+
+	/**
+	 * The part of a journal that is written by this JVM.
+	 */
+	private static final class Part {
+
+		private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+		private final RandomAccessFile file;
+
+		private final FileChannel channel;
+
+		private MappedByteBuffer chunk;
+
+		private long chunkPosition;
+
+		private Part(File file) throws IOException {
+			File directory = file.getParentFile();
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IllegalStateException("Failed to create directory '"
+						+ directory + "'");
+			}
+			this.file = new RandomAccessFile(file, "rw");
+			this.channel = this.file.getChannel();
+		}
+
+		private synchronized void append(String path, ByteBuffer content)
+				throws IOException {
+			byte[] pathBytes = path.getBytes(UTF_8);
+			CRC32 checksum = new CRC32();
+			checksum.update(content.array(), content.arrayOffset() + content.position(),
+					content.remaining());
+			ByteBuffer chunk = getChunk(4 + pathBytes.length + 8 + 8 + 8 + 4
+					+ content.remaining());
+			int start = chunk.position();
+			chunk.position(start + 4);
+			chunk.put(pathBytes);
+			chunk.putLong(PartFiles.nextTimestamp());
+			chunk.putLong(PartFiles.nextSequence());
+			chunk.putLong(checksum.getValue());
+			chunk.putInt(content.remaining());
+			chunk.put(content);
+			chunk.putInt(start, pathBytes.length);
+		}
+
+		private ByteBuffer getChunk(int recordLength) throws IOException {
+			if (this.chunk == null || this.chunk.remaining() < recordLength) {
+				long position = this.chunk == null ? 0 : this.chunkPosition
+						+ this.chunk.position();
+				this.chunk = this.channel.map(MapMode.READ_WRITE, position,
+						Math.max(CHUNK_SIZE, recordLength));
+				this.chunkPosition = position;
+			}
+			return this.chunk;
+		}
+
+		private synchronized void complete() throws IOException {
+			try {
+				if (this.chunk != null) {
+					long length = this.chunkPosition + this.chunk.position();
+					this.chunk.force();
+					this.chunk = null;
+					try {
+						this.channel.truncate(length);
+					}
+					catch (IOException ex) {
+						// Some platforms cannot truncate a mapped file. The zero-filled
+						// remainder of the chunk marks the end of the records.
+					}
+				}
+			}
+			finally {
+				this.file.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Reads the records of a part of a journal sequentially.
+	 */
+	private static final class RecordReader {
+
+		private final File file;
+
+		private final DataInputStream input;
+
+		private String path;
+
+		private long timestamp;
+
+		private long sequence;
+
+		private long checksum;
+
+		private int contentLength;
+
+		private RecordReader(File file) throws IOException {
+			this.file = file;
+			this.input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+		}
+
+		private boolean next() throws IOException {
+			int pathLength;
+			try {
+				pathLength = this.input.readInt();
+			}
+			catch (EOFException ex) {
+				return false;
+			}
+			if (pathLength == 0) {
+				return false;
+			}
+			try {
+				if (pathLength < 0) {
+					throw corrupt();
+				}
+				byte[] pathBytes = new byte[pathLength];
+				this.input.readFully(pathBytes);
+				this.path = new String(pathBytes, UTF_8);
+				this.timestamp = this.input.readLong();
+				this.sequence = this.input.readLong();
+				this.checksum = this.input.readLong();
+				this.contentLength = this.input.readInt();
+				if (this.contentLength < 0) {
+					throw corrupt();
+				}
+			}
+			catch (EOFException ex) {
+				throw corrupt();
+			}
+			return true;
+		}
+
+		private void skipContent() throws IOException {
+			int remaining = this.contentLength;
+			while (remaining > 0) {
+				int skipped = this.input.skipBytes(remaining);
+				if (skipped == 0) {
+					throw corrupt();
+				}
+				remaining -= skipped;
+			}
+		}
+
+		private byte[] readContent() throws IOException {
+			byte[] content = new byte[this.contentLength];
+			try {
+				this.input.readFully(content);
+			}
+			catch (EOFException ex) {
+				throw corrupt();
+			}
+			CRC32 checksum = new CRC32();
+			checksum.update(content);
+			if (checksum.getValue() != this.checksum) {
+				throw corrupt();
+			}
+			return content;
+		}
+
+		private IOException corrupt() {
+			return new IOException("Journal '" + this.file + "' is corrupt");
+		}
+
+		private void close() throws IOException {
+			this.input.close();
+		}
+
+	}
+
+	/**
+	 * The latest record of a snippet that has been read from a journal's parts. Records
+	 * are ordered by the time at which they were written and then, for records that were
+	 * written at the same time, by their sequence number.
+	 */
+	private static final class LatestRecord {
+
+		private final long timestamp;
+
+		private final long sequence;
+
+		private final int recordNumber;
+
+		private LatestRecord(RecordReader reader, int recordNumber) {
+			this.timestamp = reader.timestamp;
+			this.sequence = reader.sequence;
+			this.recordNumber = recordNumber;
+		}
+
+		private boolean isOlderThan(RecordReader reader) {
+			if (this.timestamp != reader.timestamp) {
+				return this.timestamp < reader.timestamp;
+			}
+			return this.sequence < reader.sequence;
+		}
+
+	}
+
+}
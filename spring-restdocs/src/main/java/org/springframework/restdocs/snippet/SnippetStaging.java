@@ -0,0 +1,472 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Support for staging the snippets that are written by each of several JVMs, such as the
+ * forks of a Gradle or Maven test run, and then merging them into an output directory.
+ * <p>
+ * Each JVM writes its snippets beneath its own directory in the staging area and records
+ * each snippet that it writes, along with a checksum of its content, in its own manifest.
+ * Once every JVM has exited, the staged snippets are {@link #merge(File, File) merged}:
+ * the manifests are combined, snippets that have been written by more than one JVM with
+ * different content are reported, and the complete set of snippets is published to the
+ * output directory in a single step. A successful merge deletes the staging area. The
+ * staging area should be {@link #clean(File) cleaned} before a run starts so that
+ * snippets staged by an earlier run that was never merged are not included. Both steps
+ * can be run from a build script using {@link #main(String[])}.
+ *
+ * @author Andy Wilkinson
+ */
+public final class SnippetStaging {
+
+	/**
+	 * The name of the manifest that is written to the output directory by
+	 * {@link #merge(File, File)}. Each line of the manifest lists the checksum of a
+	 * snippet, the JVM that wrote it and its path.
+	 */
+	public static final String MERGED_MANIFEST_NAME = "snippets.manifest";
+
+	private static final String MANIFEST_SUFFIX = ".manifest";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Map<File, Stage> stages = new HashMap<File, Stage>();
+
+	private SnippetStaging() {
+
+	}
+
+	/**
+	 * Deletes the given {@code staging} directory and everything that has been staged in
+	 * it.
+	 *
+	 * @param staging the staging directory
+	 * @throws IOException if this JVM's manifest cannot be closed
+	 */
+	public static void clean(File staging) throws IOException {
+		closeStage(staging);
+		FileSystemUtils.deleteRecursively(staging);
+	}
+
+	/**
+	 * Merges the snippets that have been staged in the given {@code staging} directory by
+	 * every JVM into the given {@code outputDirectory}, replacing the directory, and then
+	 * deletes the staging directory. A snippet that has been written with the same
+	 * content by more than one JVM is only included once.
+	 * <p>
+	 * The merged snippets are assembled in a new directory alongside the output directory
+	 * which is then renamed to replace it. As the whole directory is replaced, it must
+	 * not exist, be empty, or only contain the snippets of a previous merge. A failed
+	 * merge leaves the output directory and the staging directory untouched.
+	 *
+	 * @param staging the staging directory
+	 * @param outputDirectory the output directory
+	 * @throws IOException if the staged snippets cannot be read, do not match their
+	 * manifest, or the output directory cannot be replaced
+	 * @throws IllegalStateException if different content has been staged for the same
+	 * snippet or the output directory contains files that were not produced by a merge
+	 */
+	public static void merge(File staging, File outputDirectory) throws IOException {
+		Map<String, StagedSnippet> snippets = readManifests(staging);
+		File output = outputDirectory.getAbsoluteFile();
+		assertOnlyMergedSnippets(output);
+		File parent = output.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IllegalStateException("Failed to create directory '" + parent
+					+ "'");
+		}
+		File merged = Files.createTempDirectory(parent.toPath(),
+				"." + output.getName() + ".").toFile();
+		boolean published = false;
+		try {
+			SnippetExtractor extractor = new SnippetExtractor(merged);
+			Writer manifest = new OutputStreamWriter(new FileOutputStream(new File(
+					merged, MERGED_MANIFEST_NAME)), UTF_8);
+			try {
+				for (Entry<String, StagedSnippet> entry : snippets.entrySet()) {
+					StagedSnippet snippet = entry.getValue();
+					copy(staging, entry.getKey(), snippet, extractor);
+					manifest.write(String.format("%08x %s %s\n", snippet.checksum,
+							snippet.fork, entry.getKey()));
+				}
+			}
+			finally {
+				manifest.close();
+			}
+			publish(merged, output);
+			published = true;
+		}
+		finally {
+			if (!published) {
+				FileSystemUtils.deleteRecursively(merged);
+			}
+		}
+		clean(staging);
+	}
+
+	/**
+	 * Cleans or merges a staging directory. The arguments are either
+	 * {@code clean <staging directory>} or
+	 * {@code merge <staging directory> <output directory>}.
+	 *
+	 * @param args the arguments
+	 * @throws IOException if the staging directory cannot be cleaned or merged
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 2 && "clean".equals(args[0])) {
+			clean(new File(args[1]));
+		}
+		else if (args.length == 3 && "merge".equals(args[0])) {
+			merge(new File(args[1]), new File(args[2]));
+		}
+		else {
+			System.err.println("Usage: " + SnippetStaging.class.getName()
+					+ " clean <staging directory> | merge <staging directory> "
+					+ "<output directory>");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Stages a snippet in this JVM's directory beneath the given {@code staging}
+	 * directory and records it in this JVM's manifest. Staging a snippet at the same path
+	 * again replaces it.
+	 *
+	 * @param staging the staging directory
+	 * @param path the path of the snippet
+	 * @param buffer the buffer containing the snippet
+	 * @param charset the charset used to encode the snippet
+	 * @throws IOException if the snippet cannot be staged or its path is outside of the
+	 * staging directory
+	 */
+	static void stage(File staging, String path, SnippetBuffer buffer, Charset charset)
+			throws IOException {
+		getStage(staging).stage(path, buffer, charset);
+	}
+
+	private static Stage getStage(File staging) throws IOException {
+		synchronized (stages) {
+			Stage stage = stages.get(staging.getAbsoluteFile());
+			if (stage == null) {
+				stage = new Stage(staging.getAbsoluteFile());
+				stages.put(staging.getAbsoluteFile(), stage);
+			}
+			return stage;
+		}
+	}
+
+	private static void closeStage(File staging) throws IOException {
+		synchronized (stages) {
+			Stage stage = stages.remove(staging.getAbsoluteFile());
+			if (stage != null) {
+				stage.close();
+			}
+		}
+	}
+
+	private static Map<String, StagedSnippet> readManifests(File staging)
+			throws IOException {
+		File[] manifestFiles = staging.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File candidate) {
+				return candidate.isFile()
+						&& candidate.getName().endsWith(MANIFEST_SUFFIX);
+			}
+
+		});
+		if (manifestFiles == null || manifestFiles.length == 0) {
+			throw new FileNotFoundException("No manifests were found in '" + staging
+					+ "'");
+		}
+		Arrays.sort(manifestFiles);
+		Map<String, StagedSnippet> snippets = new TreeMap<String, StagedSnippet>();
+		for (File manifestFile : manifestFiles) {
+			String name = manifestFile.getName();
+			String fork = name.substring(0, name.length() - MANIFEST_SUFFIX.length());
+			for (Entry<String, Long> entry : readManifest(manifestFile).entrySet()) {
+				String path = entry.getKey();
+				StagedSnippet existing = snippets.get(path);
+				if (existing == null) {
+					snippets.put(path, new StagedSnippet(fork, entry.getValue()));
+				}
+				else if (existing.checksum != entry.getValue()) {
+					throw new IllegalStateException("Snippet '" + path
+							+ "' has been written with different content by '"
+							+ existing.fork + "' and '" + fork + "'");
+				}
+			}
+		}
+		return snippets;
+	}
+
+	private static Map<String, Long> readManifest(File manifestFile) throws IOException {
+		Map<String, Long> entries = new LinkedHashMap<String, Long>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(manifestFile), UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int separator = line.indexOf(' ');
+				if (separator <= 0) {
+					throw new IOException("Manifest '" + manifestFile + "' is corrupt");
+				}
+				try {
+					entries.put(line.substring(separator + 1),
+							Long.parseLong(line.substring(0, separator), 16));
+				}
+				catch (NumberFormatException ex) {
+					throw new IOException("Manifest '" + manifestFile + "' is corrupt");
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return entries;
+	}
+
+	private static void copy(File staging, String path, StagedSnippet snippet,
+			SnippetExtractor extractor) throws IOException {
+		File source = new File(new File(staging, snippet.fork), path);
+		if (!source.isFile()) {
+			throw new IOException("Snippet '" + path + "' staged by '" + snippet.fork
+					+ "' is missing");
+		}
+		CheckedInputStream input = new CheckedInputStream(new FileInputStream(source),
+				new CRC32());
+		try {
+			OutputStream output = extractor.open(path);
+			try {
+				StreamUtils.copy(input, output);
+			}
+			finally {
+				output.close();
+			}
+		}
+		finally {
+			input.close();
+		}
+		if (input.getChecksum().getValue() != snippet.checksum) {
+			throw new IOException("Snippet '" + path + "' staged by '" + snippet.fork
+					+ "' does not match its manifest");
+		}
+	}
+
+	/**
+	 * Asserts that every file in the {@code output} directory was produced by a previous
+	 * merge so that replacing the directory does not lose anything else.
+	 */
+	private static void assertOnlyMergedSnippets(File output) throws IOException {
+		if (!output.isDirectory()) {
+			return;
+		}
+		Set<String> merged = new HashSet<String>();
+		merged.add(MERGED_MANIFEST_NAME);
+		File manifest = new File(output, MERGED_MANIFEST_NAME);
+		if (manifest.isFile()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(manifest), UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] components = line.split(" ", 3);
+					if (components.length == 3) {
+						merged.add(components[2]);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		assertOnlyMergedSnippets(output, output, "", merged);
+	}
+
+	private static void assertOnlyMergedSnippets(File output, File directory,
+			String prefix, Set<String> merged) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String path = prefix + file.getName();
+			if (file.isDirectory()) {
+				assertOnlyMergedSnippets(output, file, path + "/", merged);
+			}
+			else if (!merged.contains(path)) {
+				throw new IllegalStateException("Output directory '" + output
+						+ "' contains '" + path + "' which was not produced by a merge");
+			}
+		}
+	}
+
+	/**
+	 * Replaces the {@code output} directory with the {@code merged} directory. Each step
+	 * is an atomic rename so the output directory never contains a partial set of
+	 * snippets.
+	 */
+	private static void publish(File merged, File output) throws IOException {
+		if (!output.exists()) {
+			move(merged, output);
+			return;
+		}
+		// Reserve a unique name for the previous output and then free it for the rename
+		File previous = Files.createTempDirectory(output.getParentFile().toPath(),
+				"." + output.getName() + ".").toFile();
+		previous.delete();
+		move(output, previous);
+		try {
+			move(merged, output);
+		}
+		catch (IOException ex) {
+			move(previous, output);
+			throw ex;
+		}
+		FileSystemUtils.deleteRecursively(previous);
+	}
+
+	private static void move(File source, File target) throws IOException {
+		Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * The part of a staging directory that is written by this JVM.
+	 */
+	private static final class Stage {
+
+		private final Object[] locks = new Object[64];
+
+		private final Set<File> createdDirectories = Collections
+				.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+		private final File staging;
+
+		private final File directory;
+
+		private final Writer manifest;
+
+		private Stage(File staging) throws IOException {
+			this.staging = staging;
+			this.directory = new File(staging, PartFiles.forkId());
+			File manifestFile = new File(staging, PartFiles.forkId() + MANIFEST_SUFFIX);
+			// Discard anything left behind by an earlier JVM with the same identifier
+			FileSystemUtils.deleteRecursively(this.directory);
+			createDirectory(staging);
+			this.manifest = new OutputStreamWriter(new FileOutputStream(manifestFile),
+					UTF_8);
+			for (int i = 0; i < this.locks.length; i++) {
+				this.locks[i] = new Object();
+			}
+		}
+
+		private void stage(String path, SnippetBuffer buffer, Charset charset)
+				throws IOException {
+			String cleanPath = StringUtils.cleanPath(path);
+			if (cleanPath.startsWith("/") || cleanPath.equals("..")
+					|| cleanPath.startsWith("../")) {
+				throw new IOException("Snippet '" + path
+						+ "' is outside of the staging directory '" + this.staging + "'");
+			}
+			File file = new File(this.directory, cleanPath);
+			File parent = file.getParentFile();
+			if (!this.createdDirectories.contains(parent)) {
+				createDirectory(parent);
+				this.createdDirectories.add(parent);
+			}
+			ByteBuffer encoded = buffer.encode(charset);
+			CRC32 checksum = new CRC32();
+			checksum.update(encoded.array(), encoded.arrayOffset() + encoded.position(),
+					encoded.remaining());
+			// Writes to the same path are ordered so that the manifest matches the file
+			synchronized (this.locks[(cleanPath.hashCode() & Integer.MAX_VALUE)
+					% this.locks.length]) {
+				buffer.writeTo(file, charset);
+				record(cleanPath, checksum.getValue());
+			}
+		}
+
+		private void record(String path, long checksum) throws IOException {
+			synchronized (this.manifest) {
+				this.manifest.write(String.format("%08x %s\n", checksum, path));
+				this.manifest.flush();
+			}
+		}
+
+		private void createDirectory(File directory) {
+			// mkdirs() fails if another thread creates the directory at the same time
+			if (!directory.mkdirs() && !directory.isDirectory()) {
+				throw new IllegalStateException("Failed to create directory '"
+						+ directory + "'");
+			}
+		}
+
+		private void close() throws IOException {
+			synchronized (this.manifest) {
+				this.manifest.close();
+			}
+		}
+
+	}
+
+	private static final class StagedSnippet {
+
+		private final String fork;
+
+		private final long checksum;
+
+		private StagedSnippet(String fork, long checksum) {
+			this.fork = fork;
+			this.checksum = checksum;
+		}
+
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import java.io.IOException;
+
+/**
+ * A {@code SnippetStore} is where the result handlers store the snippets that they
+ * produce.
+ *
+ * @author Andy Wilkinson
+ * @see FileSystemSnippetStore
+ * @see InMemorySnippetStore
+ * @see ArchiveSnippetStore
+ * @see org.springframework.restdocs.config.RestDocumentationConfigurer#withSnippetStore(SnippetStore)
+ */
+public interface SnippetStore {
+
+	/**
+	 * Stores the given {@code snippet} at the given {@code path}. Path segments are
+	 * separated by {@code /}. The path is relative to the configured output directory
+	 * unless the snippet's output directory is absolute.
+	 * <p>
+	 * The snippet's characters may be reused once this method has returned so they must
+	 * be copied if they are to be retained. This method may be called concurrently and
+	 * on a thread other than the one that produced the snippet.
+	 *
+	 * @param path the path of the snippet
+	 * @param snippet the snippet
+	 * @throws IOException if the snippet cannot be stored
+	 */
+	void store(String path, CharSequence snippet) throws IOException;
+
+}
@@ -16,22 +16,28 @@
 
 package org.springframework.restdocs.snippet;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.util.concurrent.Callable;
 
+import org.springframework.restdocs.config.DocumentationConfiguration;
+import org.springframework.restdocs.config.RestDocumentationContext;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultHandler;
 
 /**
- * Base class for a {@link ResultHandler} that writes a documentation snippet
+ * Base class for a {@link ResultHandler} that writes a documentation snippet. The snippet
+ * is rendered in memory and then stored in the configured
+ * {@link DocumentationConfiguration#getSnippetStore() snippet store} in a single
+ * operation, so nothing is stored if rendering fails. When
+ * {@link DocumentationConfiguration#isAsynchronousOutput() asynchronous output} is
+ * enabled, the snippet is stored on a background thread.
  * 
  * @author Andy Wilkinson
  */
 public abstract class SnippetWritingResultHandler implements ResultHandler {
 
+	private static final OutputFileResolver outputFileResolver = new OutputFileResolver();
+
 	private String outputDir;
 
 	private String fileName;
@@ -46,30 +52,91 @@ public abstract class SnippetWritingResultHandler implements ResultHandler {
 
 	@Override
 	public void handle(MvcResult result) throws IOException {
-		Writer writer = createWriter();
+		DocumentationConfiguration configuration = DocumentationConfiguration.get(result);
+		RestDocumentationContext context = RestDocumentationContext.get(result);
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		boolean handedOff = false;
 		try {
-			handle(result, new AsciidoctorWriter(writer));
+			handle(result, new AsciidoctorWriter(buffer));
+			String path = outputFileResolver.resolvePath(this.outputDir, this.fileName
+					+ ".adoc", context);
+			SnippetWrite write = new SnippetWrite(configuration.getSnippetStore(), path,
+					buffer);
+			if (configuration.isAsynchronousOutput()) {
+				RestDocumentationContext.registerPendingWrite(context,
+						AsynchronousSnippetWriter.submit(path, context == null ? write
+								: context.wrap(write)));
+				handedOff = true;
+			}
+			else {
+				write(context, write);
+			}
 		}
 		finally {
-			writer.close();
+			if (!handedOff) {
+				buffer.release();
+			}
 		}
 	}
 
-	private Writer createWriter() throws IOException {
-		File outputFile = new OutputFileResolver().resolve(this.outputDir, this.fileName
-				+ ".adoc");
+	/**
+	 * Performs the given {@code write} in the given {@code context} so that anything
+	 * the snippet store defers is registered against the test that produced the snippet,
+	 * whichever thread the result is documented on.
+	 */
+	private static void write(RestDocumentationContext context, SnippetWrite write)
+			throws IOException {
+		if (context == null) {
+			write.call();
+			return;
+		}
+		try {
+			context.wrap(write).call();
+		}
+		catch (IOException ex) {
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
 
-		if (outputFile != null) {
-			File parent = outputFile.getParentFile();
-			if (!parent.isDirectory() && !parent.mkdirs()) {
-				throw new IllegalStateException("Failed to create directory '" + parent
-						+ "'");
-			}
-			return new FileWriter(outputFile);
+	@Override
+	public String toString() {
+		return "'" + this.fileName + "' snippet in '" + this.outputDir + "'";
+	}
+
+	/**
+	 * Stores a rendered snippet and then releases its buffer.
+	 */
+	private static final class SnippetWrite implements Callable<Void> {
+
+		private final SnippetStore store;
+
+		private final String path;
+
+		private final SnippetBuffer buffer;
+
+		private SnippetWrite(SnippetStore store, String path, SnippetBuffer buffer) {
+			this.store = store;
+			this.path = path;
+			this.buffer = buffer;
 		}
-		else {
-			return new OutputStreamWriter(System.out);
+
+		@Override
+		public Void call() throws IOException {
+			try {
+				this.store.store(this.path, this.buffer);
+				return null;
+			}
+			finally {
+				this.buffer.release();
+			}
 		}
+
 	}
 
 }
\ No newline at end of file
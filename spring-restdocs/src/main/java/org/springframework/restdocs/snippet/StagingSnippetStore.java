@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SnippetStore} that stages snippets in a directory of their own for each JVM,
+ * so that JVMs that document an API in parallel do not overwrite one another's snippets.
+ * Snippets with an absolute path are written to the file system instead. Snippets are
+ * encoded using the platform's default charset.
+ * <p>
+ * Once every JVM has exited, the staged snippets must be
+ * {@link SnippetStaging#merge(File, File) merged} into the output directory.
+ *
+ * @author Andy Wilkinson
+ * @see SnippetStaging
+ */
+public class StagingSnippetStore implements SnippetStore {
+
+	private final FileSystemSnippetStore fileSystemStore = new FileSystemSnippetStore();
+
+	private final File stagingDirectory;
+
+	/**
+	 * Creates a new {@code StagingSnippetStore} that will stage snippets in the given
+	 * {@code stagingDirectory}.
+	 *
+	 * @param stagingDirectory the staging directory
+	 */
+	public StagingSnippetStore(File stagingDirectory) {
+		Assert.notNull(stagingDirectory, "Staging directory must not be null");
+		this.stagingDirectory = stagingDirectory.getAbsoluteFile();
+	}
+
+	/**
+	 * Returns the directory in which snippets are staged.
+	 *
+	 * @return the staging directory
+	 */
+	public File getStagingDirectory() {
+		return this.stagingDirectory;
+	}
+
+	@Override
+	public void store(String path, CharSequence snippet) throws IOException {
+		if (new File(path).isAbsolute()) {
+			this.fileSystemStore.store(path, snippet);
+			return;
+		}
+		SnippetBuffer buffer = SnippetBuffer.from(snippet);
+		try {
+			SnippetStaging.stage(this.stagingDirectory, path, buffer,
+					Charset.defaultCharset());
+		}
+		finally {
+			if (buffer != snippet) {
+				buffer.release();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * An immutable snapshot of the content of a request or response. The content is captured
+ * once, along with its character encoding, and then made available as bytes or as
+ * characters without being copied again. The characters are only decoded when they are
+ * first required.
+ * <p>
+ * A snapshot holds a complete copy of the content in memory in addition to the copy that
+ * is held by the request or response. Where possible, the copy is allocated at its final
+ * size so that capturing the content does not require any more memory than that.
+ *
+ * @author Andy Wilkinson
+ * @see PayloadCache#getContent(MockHttpServletRequest)
+ * @see PayloadCache#getContent(MockHttpServletResponse)
+ */
+public final class ContentSnapshot {
+
+	private static final Charset DEFAULT_RESPONSE_CHARSET = Charset.forName("ISO-8859-1");
+
+	private final byte[] content;
+
+	private final Charset charset;
+
+	private String decodedContent;
+
+	private ContentSnapshot(byte[] content, Charset charset) {
+		this.content = content;
+		this.charset = charset;
+	}
+
+	/**
+	 * Returns the length of the content in bytes.
+	 *
+	 * @return the length
+	 */
+	public int getLength() {
+		return this.content.length;
+	}
+
+	/**
+	 * Returns the character set of the content. When a request does not specify a
+	 * character encoding, the platform's default charset is used, as it is by
+	 * {@link MockHttpServletRequest#getReader()}. When a response does not specify a
+	 * character encoding, the Servlet specification's default, ISO-8859-1, is used.
+	 *
+	 * @return the character set
+	 */
+	public Charset getCharset() {
+		return this.charset;
+	}
+
+	/**
+	 * Returns a read-only view of the content's bytes.
+	 *
+	 * @return the bytes
+	 */
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(this.content).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns a new {@code InputStream} for the content's bytes.
+	 *
+	 * @return the input stream
+	 */
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(this.content);
+	}
+
+	/**
+	 * Returns a new {@code Reader} for the content's characters. The bytes are decoded as
+	 * they are read so that large content can be consumed without decoding all of it
+	 * into memory.
+	 *
+	 * @return the reader
+	 */
+	public Reader getReader() {
+		return new InputStreamReader(getInputStream(), this.charset);
+	}
+
+	/**
+	 * Returns the content's characters. They are decoded the first time that this method
+	 * is called.
+	 *
+	 * @return the characters
+	 */
+	public synchronized CharSequence asCharSequence() {
+		if (this.decodedContent == null) {
+			this.decodedContent = new String(this.content, this.charset);
+		}
+		return this.decodedContent;
+	}
+
+	@Override
+	public String toString() {
+		return asCharSequence().toString();
+	}
+
+	/**
+	 * Takes a snapshot of the content of the given {@code request}.
+	 *
+	 * @param request the request
+	 * @return the snapshot
+	 * @throws IOException if the content cannot be read
+	 */
+	public static ContentSnapshot of(MockHttpServletRequest request) throws IOException {
+		return new ContentSnapshot(read(request.getInputStream(),
+				request.getContentLength()), getCharset(request.getCharacterEncoding(),
+				Charset.defaultCharset()));
+	}
+
+	/**
+	 * Takes a snapshot of the content of the given {@code response}.
+	 *
+	 * @param response the response
+	 * @return the snapshot
+	 */
+	public static ContentSnapshot of(MockHttpServletResponse response) {
+		return new ContentSnapshot(response.getContentAsByteArray(),
+				getCharset(response.getCharacterEncoding(), DEFAULT_RESPONSE_CHARSET));
+	}
+
+	private static byte[] read(InputStream input, int length) throws IOException {
+		if (length < 0) {
+			return FileCopyUtils.copyToByteArray(input);
+		}
+		try {
+			byte[] content = new byte[length];
+			new DataInputStream(input).readFully(content);
+			return content;
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	private static Charset getCharset(String characterEncoding, Charset defaultCharset) {
+		return StringUtils.hasText(characterEncoding) ? Charset
+				.forName(characterEncoding) : defaultCharset;
+	}
+
+}
@@ -19,7 +19,6 @@ package org.springframework.restdocs.util;
 import static org.springframework.restdocs.util.IterableEnumeration.iterable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -30,7 +29,6 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.mock.web.MockHttpServletRequest;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMethod;
 
@@ -146,6 +144,18 @@ public class DocumentableHttpServletRequest {
 		return this.delegate.getContentLengthLong();
 	}
 
+	/**
+	 * Returns a snapshot of the request's content. The snapshot is shared with the other
+	 * handlers that are documenting the same result.
+	 * 
+	 * @return the request's content
+	 * @throws IOException if the content cannot be read
+	 * @see PayloadCache#getContent(MockHttpServletRequest)
+	 */
+	public ContentSnapshot getContent() throws IOException {
+		return PayloadCache.getContent(this.delegate);
+	}
+
 	/**
 	 * Returns a {@code String} of the request's content
 	 * 
@@ -153,9 +163,7 @@ public class DocumentableHttpServletRequest {
 	 * @throws IOException if the content cannot be read
 	 */
 	public String getContentAsString() throws IOException {
-		StringWriter bodyWriter = new StringWriter();
-		FileCopyUtils.copy(this.delegate.getReader(), bodyWriter);
-		return bodyWriter.toString();
+		return getContent().toString();
 	}
 
 	/**
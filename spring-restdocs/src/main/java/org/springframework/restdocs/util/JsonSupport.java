@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * The JSON support that is shared by everything that reads or writes JSON while
+ * documenting a RESTful API. It holds an immutable, pre-configured {@link ObjectReader}
+ * and the mapper's {@link JsonFactory} so that Jackson's caches are built once rather
+ * than every time a payload is documented.
+ * <p>
+ * By default, the support is created from a plain {@link ObjectMapper}. An application's
+ * own mapper can be used instead by configuring it on a
+ * {@link org.springframework.restdocs.config.RestDocumentationConfigurer}.
+ *
+ * @author Andy Wilkinson
+ */
+public class JsonSupport {
+
+	private static final JsonSupport DEFAULT = new JsonSupport(new ObjectMapper());
+
+	private final JsonFactory factory;
+
+	private final ObjectReader mapReader;
+
+	/**
+	 * Creates a new {@code JsonSupport} that uses the given {@code objectMapper}. The
+	 * mapper's deserialization configuration is captured when this support is created
+	 * and subsequent changes to it will not be reflected. The mapper's
+	 * {@link ObjectMapper#getFactory() factory} is shared rather than copied, so changes
+	 * to the features of its parsers and generators will be reflected. The mapper should be
+	 * fully configured before it is used to create a {@code JsonSupport}.
+	 *
+	 * @param objectMapper the mapper
+	 */
+	public JsonSupport(ObjectMapper objectMapper) {
+		this.factory = objectMapper.getFactory();
+		this.mapReader = objectMapper.reader(Map.class);
+	}
+
+	/**
+	 * Returns the default {@code JsonSupport}, shared by the whole library.
+	 *
+	 * @return the default support
+	 */
+	public static JsonSupport getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Reads the JSON object from the given {@code reader} into a {@code Map}.
+	 *
+	 * @param reader the reader
+	 * @return the map
+	 * @throws IOException if the JSON cannot be read
+	 */
+	public Map<String, Object> readMap(Reader reader) throws IOException {
+		return this.mapReader.readValue(reader);
+	}
+
+	/**
+	 * Creates a parser that will read JSON from the given {@code reader}.
+	 *
+	 * @param reader the reader
+	 * @return the parser
+	 * @throws IOException if the parser cannot be created
+	 */
+	public JsonParser createParser(Reader reader) throws IOException {
+		return this.factory.createParser(reader);
+	}
+
+	/**
+	 * Creates a generator that will write indented JSON to the given {@code writer}.
+	 *
+	 * @param writer the writer
+	 * @return the generator
+	 * @throws IOException if the generator cannot be created
+	 */
+	public JsonGenerator createIndentingGenerator(Writer writer) throws IOException {
+		return this.factory.createGenerator(writer).useDefaultPrettyPrinter();
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * A cache of the payloads of the requests and responses that are being documented. While
+ * a {@link MvcResult} is {@link #begin(MvcResult, JsonSupport) being documented}, its
+ * request's and its response's content is captured and parsed at most once and the
+ * resulting {@link ContentSnapshot snapshot} and model are shared by every handler that
+ * asks for them. Outside of that scope, payloads are captured and parsed on every call.
+ * <p>
+ * The models that are returned are shared and must not be modified.
+ *
+ * @author Andy Wilkinson
+ */
+public final class PayloadCache {
+
+	private static final Map<Object, CachedPayload> payloads = new IdentityHashMap<Object, CachedPayload>();
+
+	private PayloadCache() {
+
+	}
+
+	/**
+	 * Begins caching the payloads of the given {@code result}'s request and response.
+	 * Each call must be paired with a call to {@link #end(MvcResult)}.
+	 *
+	 * @param result the result that is being documented
+	 * @param jsonSupport the support used to parse JSON payloads
+	 */
+	public static void begin(MvcResult result, JsonSupport jsonSupport) {
+		synchronized (payloads) {
+			retain(result.getRequest(), jsonSupport);
+			retain(result.getResponse(), jsonSupport);
+		}
+	}
+
+	/**
+	 * Ends caching the payloads of the given {@code result}'s request and response,
+	 * discarding any that have been parsed once every call to
+	 * {@link #begin(MvcResult, JsonSupport)} has been matched.
+	 *
+	 * @param result the result that was being documented
+	 */
+	public static void end(MvcResult result) {
+		synchronized (payloads) {
+			release(result.getRequest());
+			release(result.getResponse());
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the content of the given {@code request}.
+	 *
+	 * @param request the request
+	 * @return the snapshot
+	 * @throws IOException if the content cannot be read
+	 */
+	public static ContentSnapshot getContent(MockHttpServletRequest request)
+			throws IOException {
+		return getContent(request, snapshotSource(request));
+	}
+
+	/**
+	 * Returns a snapshot of the content of the given {@code response}.
+	 *
+	 * @param response the response
+	 * @return the snapshot
+	 * @throws IOException if the content cannot be read
+	 */
+	public static ContentSnapshot getContent(MockHttpServletResponse response)
+			throws IOException {
+		return getContent(response, snapshotSource(response));
+	}
+
+	/**
+	 * Returns the JSON content of the given {@code request} parsed into a {@code Map}.
+	 *
+	 * @param request the request
+	 * @return the parsed content
+	 * @throws IOException if the content cannot be read or parsed
+	 */
+	public static Map<String, Object> getJsonContent(MockHttpServletRequest request)
+			throws IOException {
+		return getJsonContent(request, snapshotSource(request));
+	}
+
+	/**
+	 * Returns the JSON content of the given {@code response} parsed into a {@code Map}.
+	 *
+	 * @param response the response
+	 * @return the parsed content
+	 * @throws IOException if the content cannot be read or parsed
+	 */
+	public static Map<String, Object> getJsonContent(MockHttpServletResponse response)
+			throws IOException {
+		return getJsonContent(response, snapshotSource(response));
+	}
+
+	private static ContentSnapshot getContent(Object source,
+			SnapshotSource snapshotSource) throws IOException {
+		CachedPayload cachedPayload = getCachedPayload(source);
+		if (cachedPayload == null) {
+			return snapshotSource.snapshot();
+		}
+		return cachedPayload.getContent(snapshotSource);
+	}
+
+	private static Map<String, Object> getJsonContent(Object source,
+			SnapshotSource snapshotSource) throws IOException {
+		CachedPayload cachedPayload = getCachedPayload(source);
+		if (cachedPayload == null) {
+			return parse(snapshotSource.snapshot(), JsonSupport.getDefault());
+		}
+		return cachedPayload.getJsonContent(snapshotSource);
+	}
+
+	private static CachedPayload getCachedPayload(Object source) {
+		synchronized (payloads) {
+			return payloads.get(source);
+		}
+	}
+
+	private static SnapshotSource snapshotSource(final MockHttpServletRequest request) {
+		return new SnapshotSource() {
+
+			@Override
+			public ContentSnapshot snapshot() throws IOException {
+				return ContentSnapshot.of(request);
+			}
+
+		};
+	}
+
+	private static SnapshotSource snapshotSource(final MockHttpServletResponse response) {
+		return new SnapshotSource() {
+
+			@Override
+			public ContentSnapshot snapshot() {
+				return ContentSnapshot.of(response);
+			}
+
+		};
+	}
+
+	private static void retain(Object source, JsonSupport jsonSupport) {
+		if (source != null) {
+			CachedPayload cachedPayload = payloads.get(source);
+			if (cachedPayload == null) {
+				cachedPayload = new CachedPayload(jsonSupport);
+				payloads.put(source, cachedPayload);
+			}
+			cachedPayload.references++;
+		}
+	}
+
+	private static void release(Object source) {
+		CachedPayload cachedPayload = source == null ? null : payloads.get(source);
+		if (cachedPayload != null && --cachedPayload.references == 0) {
+			payloads.remove(source);
+		}
+	}
+
+	private static Map<String, Object> parse(ContentSnapshot content,
+			JsonSupport jsonSupport) throws IOException {
+		Reader reader = content.getReader();
+		try {
+			return jsonSupport.readMap(reader);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private interface SnapshotSource {
+
+		ContentSnapshot snapshot() throws IOException;
+
+	}
+
+	private static final class CachedPayload {
+
+		private final JsonSupport jsonSupport;
+
+		private int references;
+
+		private ContentSnapshot content;
+
+		private Map<String, Object> jsonContent;
+
+		private CachedPayload(JsonSupport jsonSupport) {
+			this.jsonSupport = jsonSupport;
+		}
+
+		private synchronized ContentSnapshot getContent(SnapshotSource snapshotSource)
+				throws IOException {
+			if (this.content == null) {
+				this.content = snapshotSource.snapshot();
+			}
+			return this.content;
+		}
+
+		private synchronized Map<String, Object> getJsonContent(
+				SnapshotSource snapshotSource) throws IOException {
+			if (this.jsonContent == null) {
+				this.jsonContent = parse(getContent(snapshotSource), this.jsonSupport);
+			}
+			return this.jsonContent;
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.restdocs.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Support for running tasks on virtual threads when running on Java 21 or later. The
+ * executor is located reflectively so that this class can be used on earlier versions
+ * of Java where virtual threads are not {@link #isAvailable() available}.
+ *
+ * @author Andy Wilkinson
+ */
+public final class VirtualThreads {
+
+	private static final Method newVirtualThreadPerTaskExecutor = ReflectionUtils
+			.findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+	private static final Method isVirtual = ReflectionUtils.findMethod(Thread.class,
+			"isVirtual");
+
+	private VirtualThreads() {
+
+	}
+
+	/**
+	 * Returns whether or not virtual threads are available.
+	 *
+	 * @return {@code true} if virtual threads are available, otherwise {@code false}
+	 */
+	public static boolean isAvailable() {
+		return newVirtualThreadPerTaskExecutor != null;
+	}
+
+	/**
+	 * Returns whether or not the given {@code thread} is a virtual thread.
+	 *
+	 * @param thread the thread
+	 * @return {@code true} if the thread is a virtual thread, otherwise {@code false}
+	 */
+	public static boolean isVirtual(Thread thread) {
+		return isVirtual != null
+				&& (Boolean) ReflectionUtils.invokeMethod(isVirtual, thread);
+	}
+
+	/**
+	 * Creates a new {@link ExecutorService} that runs each task on a new virtual thread.
+	 *
+	 * @return the executor service
+	 * @throws IllegalStateException if virtual threads are not {@link #isAvailable()
+	 * available}
+	 */
+	public static ExecutorService newExecutor() {
+		if (newVirtualThreadPerTaskExecutor == null) {
+			throw new IllegalStateException("Virtual threads require Java 21 or later");
+		}
+		return (ExecutorService) ReflectionUtils.invokeMethod(
+				newVirtualThreadPerTaskExecutor, null);
+	}
+
+}
@@ -16,14 +16,34 @@
 
 package org.springframework.restdocs;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.springframework.restdocs.RestDocumentation.document;
+import static org.springframework.restdocs.hypermedia.HypermediaDocumentation.linkWithRel;
+import static org.springframework.restdocs.hypermedia.LinkExtractors.halLinks;
+import static org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -35,6 +55,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
 import org.springframework.restdocs.RestDocumentationIntegrationTests.TestConfiguration;
 import org.springframework.restdocs.config.RestDocumentationConfigurer;
+import org.springframework.restdocs.config.RestDocumentationContext;
+import org.springframework.restdocs.snippet.InMemorySnippetStore;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -125,6 +147,132 @@ public class RestDocumentationIntegrationTests {
 
 	}
 
+	@Test
+	public void customSnippetStore() throws Exception {
+		InMemorySnippetStore snippetStore = new InMemorySnippetStore();
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer().withSnippetStore(snippetStore))
+				.build();
+
+		mockMvc.perform(get("/").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk()).andDo(document("in-memory"));
+		Set<String> expectedPaths = new HashSet<String>(Arrays.asList(
+				"in-memory/http-request.adoc", "in-memory/http-response.adoc",
+				"in-memory/curl-request.adoc"));
+		assertThat(snippetStore.getSnippets().keySet(), is(equalTo(expectedPaths)));
+		assertFalse(new File("build/generated-snippets/in-memory").exists());
+	}
+
+	@Test
+	public void linksAndFieldsOfTheSamePayload() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer()).build();
+
+		mockMvc.perform(get("/company").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andDo(document("links-and-fields")
+						.withLinks(halLinks(),
+								linkWithRel("self").description("This company"))
+						.withResponseFields(
+								fieldWithPath("_links").description("Links to resources"),
+								fieldWithPath("name").description("The company's name")));
+		assertExpectedSnippetFilesExist(new File(
+				"build/generated-snippets/links-and-fields"), "links.adoc",
+				"response-fields.adoc");
+	}
+
+	@Test
+	public void concurrentRequests() throws Exception {
+		final MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer())
+				.alwaysDo(document("{method-name}-{step}")).build();
+		RestDocumentationContext context = RestDocumentationContext.currentContext();
+		List<Callable<Void>> requests = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < 4; i++) {
+			requests.add(context.wrap(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					mockMvc.perform(get("/").accept(MediaType.APPLICATION_JSON))
+							.andExpect(status().isOk());
+					return null;
+				}
+
+			}));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(requests.size());
+		try {
+			for (Future<Void> request : executor.invokeAll(requests)) {
+				request.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		for (int step = 1; step <= requests.size(); step++) {
+			assertExpectedSnippetFilesExist(new File(
+					"build/generated-snippets/concurrent-requests-" + step),
+					"http-request.adoc", "http-response.adoc", "curl-request.adoc");
+		}
+		assertFalse(new File("build/generated-snippets/concurrent-requests-"
+				+ (requests.size() + 1)).exists());
+	}
+
+	@Test
+	public void concurrentHandlers() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer().withConcurrentHandlers())
+				.build();
+
+		mockMvc.perform(get("/company").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andDo(document("concurrent")
+						.withLinks(halLinks(),
+								linkWithRel("self").description("This company"))
+						.withResponseFields(
+								fieldWithPath("_links").description("Links to resources"),
+								fieldWithPath("name").description("The company's name")));
+		assertExpectedSnippetFilesExist(new File("build/generated-snippets/concurrent"),
+				"http-request.adoc", "http-response.adoc", "curl-request.adoc",
+				"links.adoc", "response-fields.adoc");
+	}
+
+	@Test
+	public void failuresOfConcurrentHandlersAreReportedTogether() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer().withConcurrentHandlers())
+				.build();
+
+		try {
+			mockMvc.perform(get("/company").accept(MediaType.APPLICATION_JSON))
+					.andExpect(status().isOk())
+					.andDo(document("concurrent-failures").withLinks(halLinks())
+							.withResponseFields(
+									fieldWithPath("name").description("The name")));
+			fail("Documentation should have failed");
+		}
+		catch (AssertionError ex) {
+			assertThat(ex.getMessage(), startsWith("Documentation failed in 2 handlers:"));
+			assertThat(ex.getMessage(), containsString("'links' snippet"));
+			assertThat(ex.getMessage(), containsString("'response-fields' snippet"));
+			assertThat(ex.getSuppressed().length, is(2));
+		}
+	}
+
+	@Test
+	public void fieldsOfAnXmlPayload() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.context)
+				.apply(new RestDocumentationConfigurer()).build();
+
+		mockMvc.perform(get("/order").accept(MediaType.APPLICATION_XML))
+				.andExpect(status().isOk())
+				.andDo(document("xml-fields").withResponseFields(
+						fieldWithPath("/order/@id").description("The order's id"),
+						fieldWithPath("/order/item").description("An item")));
+		assertExpectedSnippetFilesExist(
+				new File("build/generated-snippets/xml-fields"), "response-fields.adoc");
+	}
+
 	private void assertExpectedSnippetFilesExist(File directory, String... snippets) {
 		for (String snippet : snippets) {
 			assertTrue(new File(directory, snippet).isFile());
@@ -152,6 +300,20 @@ public class RestDocumentationIntegrationTests {
 			return response;
 		}
 
+		@RequestMapping(value = "/company", produces = MediaType.APPLICATION_JSON_VALUE)
+		public Map<String, Object> company() {
+			Map<String, Object> response = new HashMap<String, Object>();
+			response.put("name", "Acme");
+			response.put("_links", Collections.singletonMap("self",
+					Collections.singletonMap("href", "http://localhost:8080/company")));
+			return response;
+		}
+
+		@RequestMapping(value = "/order", produces = MediaType.APPLICATION_XML_VALUE)
+		public String order() {
+			return "<order id=\"1\"><item>one</item><item>two</item></order>";
+		}
+
 	}
 
 }
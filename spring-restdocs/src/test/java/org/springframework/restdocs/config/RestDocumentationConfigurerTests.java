@@ -17,20 +17,41 @@
 package org.springframework.restdocs.config;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.springframework.hateoas.mvc.BasicLinkBuilder;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.restdocs.StubMvcResult;
+import org.springframework.restdocs.snippet.ArchiveSnippetStore;
+import org.springframework.restdocs.snippet.BatchingSnippetStore;
+import org.springframework.restdocs.snippet.FileSystemSnippetStore;
+import org.springframework.restdocs.snippet.InMemorySnippetStore;
+import org.springframework.restdocs.snippet.JournalSnippetStore;
+import org.springframework.restdocs.snippet.SnippetStore;
+import org.springframework.restdocs.snippet.StagingSnippetStore;
+import org.springframework.restdocs.util.JsonSupport;
 import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * Tests for {@link RestDocumentationConfigurer}.
  *
@@ -95,6 +116,136 @@ public class RestDocumentationConfigurerTests {
 				is(equalTo(Integer.toString(content.length))));
 	}
 
+	@Test
+	public void defaultDocumentationConfiguration() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		DocumentationConfiguration configuration = DocumentationConfiguration
+				.get(new StubMvcResult(this.request, null));
+		assertThat(configuration.getPayloadMemoryThreshold(),
+				is(equalTo(DocumentationConfiguration.DEFAULT_PAYLOAD_MEMORY_THRESHOLD)));
+		assertThat(configuration.getUndocumentedPayloadReportLimit(),
+				is(equalTo(DocumentationConfiguration.DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT)));
+		assertThat(configuration.getJsonSupport(),
+				is(sameInstance(JsonSupport.getDefault())));
+		assertThat(configuration.isAsynchronousOutput(), is(false));
+		assertThat(configuration.getSnippetStore(),
+				is(instanceOf(FileSystemSnippetStore.class)));
+		assertThat(configuration.getHandlerExecutor(), is(nullValue()));
+	}
+
+	@Test
+	public void customPayloadLimits() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withPayloadMemoryThreshold(1024).withUndocumentedPayloadReportLimit(512)
+				.beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		DocumentationConfiguration configuration = DocumentationConfiguration
+				.get(new StubMvcResult(this.request, null));
+		assertThat(configuration.getPayloadMemoryThreshold(), is(equalTo(1024)));
+		assertThat(configuration.getUndocumentedPayloadReportLimit(), is(equalTo(512)));
+	}
+
+	@Test
+	public void asynchronousOutput() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withAsynchronousOutput().beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		assertThat(DocumentationConfiguration.get(new StubMvcResult(this.request, null))
+				.isAsynchronousOutput(), is(true));
+	}
+
+	@Test
+	public void customSnippetStore() {
+		SnippetStore snippetStore = new InMemorySnippetStore();
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withSnippetStore(snippetStore).beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		assertThat(DocumentationConfiguration.get(new StubMvcResult(this.request, null))
+				.getSnippetStore(), is(sameInstance(snippetStore)));
+	}
+
+	@Test
+	public void archiveOutput() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withArchiveOutput(new File("snippets.zip")).beforeMockMvcCreated(null,
+						null);
+		postProcessor.postProcessRequest(this.request);
+		SnippetStore snippetStore = DocumentationConfiguration.get(
+				new StubMvcResult(this.request, null)).getSnippetStore();
+		assertThat(snippetStore, is(instanceOf(ArchiveSnippetStore.class)));
+		assertThat(((ArchiveSnippetStore) snippetStore).getArchive(),
+				is(equalTo(new File("snippets.zip").getAbsoluteFile())));
+	}
+
+	@Test
+	public void journalOutput() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withJournalOutput(new File("snippets.journal")).beforeMockMvcCreated(
+						null, null);
+		postProcessor.postProcessRequest(this.request);
+		SnippetStore snippetStore = DocumentationConfiguration.get(
+				new StubMvcResult(this.request, null)).getSnippetStore();
+		assertThat(snippetStore, is(instanceOf(JournalSnippetStore.class)));
+		assertThat(((JournalSnippetStore) snippetStore).getJournal(),
+				is(equalTo(new File("snippets.journal").getAbsoluteFile())));
+	}
+
+	@Test
+	public void stagedOutput() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withStagedOutput(new File("staging")).beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		SnippetStore snippetStore = DocumentationConfiguration.get(
+				new StubMvcResult(this.request, null)).getSnippetStore();
+		assertThat(snippetStore, is(instanceOf(StagingSnippetStore.class)));
+		assertThat(((StagingSnippetStore) snippetStore).getStagingDirectory(),
+				is(equalTo(new File("staging").getAbsoluteFile())));
+	}
+
+	@Test
+	public void batchedOutput() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withBatchedOutput().beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		assertThat(DocumentationConfiguration.get(new StubMvcResult(this.request, null))
+				.getSnippetStore(), is(instanceOf(BatchingSnippetStore.class)));
+	}
+
+	@Test
+	public void concurrentHandlers() {
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withConcurrentHandlers().beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		assertThat(DocumentationConfiguration.get(new StubMvcResult(this.request, null))
+				.getHandlerExecutor(), is(notNullValue()));
+	}
+
+	@Test
+	public void concurrentHandlersWithCustomExecutor() {
+		Executor executor = Executors.newSingleThreadExecutor();
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withConcurrentHandlers(executor).beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		assertThat(DocumentationConfiguration.get(new StubMvcResult(this.request, null))
+				.getHandlerExecutor(), is(sameInstance(executor)));
+	}
+
+	@Test
+	public void customObjectMapper() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		RequestPostProcessor postProcessor = new RestDocumentationConfigurer()
+				.withObjectMapper(objectMapper).beforeMockMvcCreated(null, null);
+		postProcessor.postProcessRequest(this.request);
+		DocumentationConfiguration configuration = DocumentationConfiguration
+				.get(new StubMvcResult(this.request, null));
+		Map<String, Object> content = configuration.getJsonSupport().readMap(
+				new StringReader("{'a':'alpha'}"));
+		assertThat(content.get("a"), is(equalTo((Object) "alpha")));
+	}
+
 	private void assertUriConfiguration(String scheme, String host, int port) {
 		assertEquals(scheme, this.request.getScheme());
 		assertEquals(host, this.request.getServerName());
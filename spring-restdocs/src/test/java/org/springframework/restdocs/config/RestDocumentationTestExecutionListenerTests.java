@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.config;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.restdocs.StubMvcResult;
+import org.springframework.test.context.TestContext;
+
+/**
+ * Tests for {@link RestDocumentationTestExecutionListener}.
+ *
+ * @author Andy Wilkinson
+ */
+public class RestDocumentationTestExecutionListenerTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private final RestDocumentationTestExecutionListener listener = new RestDocumentationTestExecutionListener();
+
+	private final TestContext testContext = mock(TestContext.class);
+
+	public RestDocumentationTestExecutionListenerTests() throws Exception {
+		Method method = getClass().getMethod("contextIsEstablishedAndCleared");
+		when(this.testContext.getTestMethod()).thenReturn(method);
+	}
+
+	@After
+	public void clearContext() throws Exception {
+		RestDocumentationContext.clearContext();
+		this.listener.afterTestClass(this.testContext);
+	}
+
+	@Test
+	public void contextIsEstablishedAndCleared() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		assertThat(RestDocumentationContext.currentContext(), is(notNullValue()));
+		this.listener.afterTestMethod(this.testContext);
+		assertThat(RestDocumentationContext.currentContext(), is(nullValue()));
+	}
+
+	@Test
+	public void contextIsNotInheritedByChildThreads() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		final AtomicReference<RestDocumentationContext> childContext = new AtomicReference<RestDocumentationContext>();
+		Thread child = new Thread() {
+
+			@Override
+			public void run() {
+				childContext.set(RestDocumentationContext.currentContext());
+			}
+
+		};
+		child.start();
+		child.join();
+		this.listener.afterTestMethod(this.testContext);
+		assertThat(childContext.get(), is(nullValue()));
+	}
+
+	@Test
+	public void contextIsAvailableToWrappedTasks() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		final RestDocumentationContext context = RestDocumentationContext
+				.currentContext();
+		final AtomicReference<RestDocumentationContext> childContext = new AtomicReference<RestDocumentationContext>();
+		Thread child = new Thread(context.wrap(new Runnable() {
+
+			@Override
+			public void run() {
+				childContext.set(RestDocumentationContext.currentContext());
+			}
+
+		}));
+		child.start();
+		child.join();
+		this.listener.afterTestMethod(this.testContext);
+		assertThat(childContext.get(), is(sameInstance(context)));
+	}
+
+	@Test
+	public void wrappedTaskRestoresThePreviousContext() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		RestDocumentationContext context = RestDocumentationContext.currentContext();
+		RestDocumentationContext.clearContext();
+		Integer step = context.wrap(new Callable<Integer>() {
+
+			@Override
+			public Integer call() {
+				MockHttpServletRequest request = new MockHttpServletRequest();
+				RestDocumentationContext.currentContext().bindTo(request);
+				return RestDocumentationContext.get(new StubMvcResult(request, null))
+						.getStepCount();
+			}
+
+		}).call();
+		assertThat(step, is(1));
+		assertThat(RestDocumentationContext.currentContext(), is(nullValue()));
+	}
+
+	@Test
+	public void contextIsBoundToEachRequestWithItsStep() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		RestDocumentationContext context = RestDocumentationContext.currentContext();
+		MockHttpServletRequest first = new MockHttpServletRequest();
+		context.bindTo(first);
+		MockHttpServletRequest second = new MockHttpServletRequest();
+		context.bindTo(second);
+		this.listener.afterTestMethod(this.testContext);
+		RestDocumentationContext firstContext = RestDocumentationContext
+				.get(new StubMvcResult(first, null));
+		assertThat(firstContext.getStepCount(), is(1));
+		assertThat(firstContext.getTestMethod(),
+				is(equalTo(this.testContext.getTestMethod())));
+		assertThat(RestDocumentationContext.get(new StubMvcResult(second, null))
+				.getStepCount(), is(2));
+	}
+
+	@Test
+	public void failedPendingWriteFailsTheTestMethod() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		RestDocumentationContext.registerPendingWrite(
+				RestDocumentationContext.currentContext(), failedWrite("method"));
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("method");
+		try {
+			this.listener.afterTestMethod(this.testContext);
+		}
+		finally {
+			assertThat(RestDocumentationContext.currentContext(), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void failedWriteInTheContextOfTheTestClassFailsTheTestClass()
+			throws Exception {
+		this.listener.beforeTestClass(this.testContext);
+		RestDocumentationContext.registerPendingWrite(
+				RestDocumentationContext.currentContext(), failedWrite("class"));
+		this.listener.beforeTestMethod(this.testContext);
+		this.listener.afterTestMethod(this.testContext);
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("class");
+		this.listener.afterTestClass(this.testContext);
+	}
+
+	@Test
+	public void failedWriteOfAnotherTestClassDoesNotFailTheTestClass() throws Exception {
+		TestContext otherTestContext = mock(TestContext.class);
+		doReturn(String.class).when(otherTestContext).getTestClass();
+		this.listener.beforeTestClass(otherTestContext);
+		RestDocumentationContext.registerPendingWrite(
+				RestDocumentationContext.currentContext(), failedWrite("other"));
+		this.listener.beforeTestClass(this.testContext);
+		this.listener.afterTestClass(this.testContext);
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("other");
+		this.listener.afterTestClass(otherTestContext);
+	}
+
+	@Test
+	public void classContextIsRestoredWhenTestMethodEnds() throws Exception {
+		this.listener.beforeTestClass(this.testContext);
+		RestDocumentationContext classContext = RestDocumentationContext
+				.currentContext();
+		this.listener.beforeTestMethod(this.testContext);
+		assertThat(RestDocumentationContext.currentContext().getTestMethod(),
+				is(notNullValue()));
+		this.listener.afterTestMethod(this.testContext);
+		assertThat(RestDocumentationContext.currentContext(),
+				is(sameInstance(classContext)));
+		assertThat(classContext.getTestMethod(), is(nullValue()));
+		this.listener.afterTestClass(this.testContext);
+		assertThat(RestDocumentationContext.currentContext(), is(nullValue()));
+	}
+
+	@Test
+	public void deferredOutputIsFlushedWhenItsTestClassEnds() throws Exception {
+		TestContext otherTestContext = mock(TestContext.class);
+		doReturn(String.class).when(otherTestContext).getTestClass();
+		CountingFlushable output = new CountingFlushable();
+		this.listener.beforeTestMethod(this.testContext);
+		RestDocumentationContext.registerDeferredOutput(output);
+		RestDocumentationContext.registerDeferredOutput(output);
+		this.listener.afterTestMethod(this.testContext);
+		this.listener.beforeTestClass(otherTestContext);
+		this.listener.afterTestClass(otherTestContext);
+		assertThat(output.flushes, is(0));
+		this.listener.afterTestClass(this.testContext);
+		assertThat(output.flushes, is(1));
+	}
+
+	@Test
+	public void pendingWritesAreOnlyAwaitedOnce() throws Exception {
+		this.listener.beforeTestMethod(this.testContext);
+		RestDocumentationContext.registerPendingWrite(
+				RestDocumentationContext.currentContext(), failedWrite("once"));
+		try {
+			this.listener.afterTestMethod(this.testContext);
+		}
+		catch (IOException ex) {
+			// Expected
+		}
+		this.listener.beforeTestMethod(this.testContext);
+		this.listener.afterTestMethod(this.testContext);
+	}
+
+	private static final class CountingFlushable implements Flushable {
+
+		private int flushes;
+
+		@Override
+		public void flush() {
+			this.flushes++;
+		}
+
+	}
+
+	private FutureTask<Void> failedWrite(final String message) {
+		FutureTask<Void> write = new FutureTask<Void>(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				throw new IOException(message);
+			}
+
+		});
+		write.run();
+		return write;
+	}
+
+}
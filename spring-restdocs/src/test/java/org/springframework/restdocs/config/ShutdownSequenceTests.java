@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.config;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import org.springframework.restdocs.config.ShutdownSequence.Phase;
+
+/**
+ * Tests for {@link ShutdownSequence}.
+ *
+ * @author Andy Wilkinson
+ */
+public class ShutdownSequenceTests {
+
+	private final ShutdownSequence sequence = new ShutdownSequence();
+
+	private final List<String> ran = new ArrayList<String>();
+
+	@Test
+	public void phasesAreRunInOrderRegardlessOfTheOrderOfRegistration() {
+		this.sequence.add(Phase.COMPLETE_OUTPUT, "complete", task("complete"));
+		this.sequence.add(Phase.FLUSH_DEFERRED_OUTPUT, "flush", task("flush"));
+		this.sequence.add(Phase.AWAIT_WRITES, "await", task("await"));
+		this.sequence.add(Phase.AWAIT_WRITES, "await again", task("await again"));
+		this.sequence.run();
+		assertThat(this.ran, is(equalTo(Arrays.asList("await", "await again", "flush",
+				"complete"))));
+	}
+
+	@Test
+	public void taskThatIsRegisteredByAnEarlierPhaseIsRun() {
+		this.sequence.add(Phase.FLUSH_DEFERRED_OUTPUT, "flush", new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				ShutdownSequenceTests.this.ran.add("flush");
+				ShutdownSequenceTests.this.sequence.add(Phase.COMPLETE_OUTPUT,
+						"complete", task("complete"));
+				return null;
+			}
+
+		});
+		this.sequence.run();
+		assertThat(this.ran, is(equalTo(Arrays.asList("flush", "complete"))));
+	}
+
+	@Test
+	public void failedTaskDoesNotPreventLaterTasksFromRunning() {
+		this.sequence.add(Phase.AWAIT_WRITES, "fail", new Callable<Void>() {
+
+			@Override
+			public Void call() throws IOException {
+				throw new IOException("failed");
+			}
+
+		});
+		this.sequence.add(Phase.COMPLETE_OUTPUT, "complete", task("complete"));
+		this.sequence.run();
+		assertThat(this.ran, is(equalTo(Arrays.asList("complete"))));
+	}
+
+	private Callable<Void> task(final String name) {
+		return new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				ShutdownSequenceTests.this.ran.add(name);
+				return null;
+			}
+
+		};
+	}
+
+}
@@ -20,13 +20,12 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
-import java.util.Map;
+import java.io.StringReader;
 
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.ExpectedException;
+import org.springframework.restdocs.util.JsonSupport;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
 
 /**
  * Tests for {@link FieldTypeResolver}
@@ -38,9 +37,6 @@ public class FieldTypeResolverTests {
 
 	private final FieldTypeResolver fieldTypeResolver = new FieldTypeResolver();
 
-	@Rule
-	public ExpectedException thrownException = ExpectedException.none();
-
 	@Test
 	public void arrayField() throws IOException {
 		assertFieldType(FieldType.ARRAY, "[]");
@@ -72,32 +68,46 @@ public class FieldTypeResolverTests {
 	}
 
 	@Test
-	public void nestedField() throws IOException {
-		assertThat(this.fieldTypeResolver.resolveFieldType("a.b.c",
-				createPayload("{\"a\":{\"b\":{\"c\":{}}}}")), equalTo(FieldType.OBJECT));
+	public void xmlElementWithChildElements() {
+		assertThat(this.fieldTypeResolver.resolveFieldType(true, ""),
+				equalTo(FieldType.OBJECT));
 	}
 
 	@Test
-	public void nonExistentFieldProducesIllegalArgumentException() throws IOException {
-		this.thrownException.expect(IllegalArgumentException.class);
-		this.thrownException
-				.expectMessage("The payload does not contain a field with the path 'a.b'");
-		this.fieldTypeResolver.resolveFieldType("a.b", createPayload("{\"a\":{}}"));
+	public void emptyXmlElement() {
+		assertThat(this.fieldTypeResolver.resolveFieldType(false, "  "),
+				equalTo(FieldType.NULL));
 	}
 
-	private void assertFieldType(FieldType expectedType, String jsonValue)
-			throws IOException {
-		assertThat(this.fieldTypeResolver.resolveFieldType("field",
-				createSimplePayload(jsonValue)), equalTo(expectedType));
+	@Test
+	public void xmlBoolean() {
+		assertThat(this.fieldTypeResolver.resolveFieldType(false, "false"),
+				equalTo(FieldType.BOOLEAN));
+	}
+
+	@Test
+	public void xmlNumber() {
+		assertThat(this.fieldTypeResolver.resolveFieldType(false, " -1.5e3 "),
+				equalTo(FieldType.NUMBER));
 	}
 
-	private Map<String, Object> createSimplePayload(String value) throws IOException {
-		return createPayload("{\"field\":" + value + "}");
+	@Test
+	public void xmlString() {
+		assertThat(this.fieldTypeResolver.resolveFieldType(false, "1.2.3"),
+				equalTo(FieldType.STRING));
 	}
 
-	@SuppressWarnings("unchecked")
-	private Map<String, Object> createPayload(String json) throws IOException {
-		return new ObjectMapper().readValue(json, Map.class);
+	private void assertFieldType(FieldType expectedType, String jsonValue)
+			throws IOException {
+		JsonParser parser = JsonSupport.getDefault().createParser(
+				new StringReader(jsonValue));
+		try {
+			assertThat(this.fieldTypeResolver.resolveFieldType(parser.nextToken()),
+					equalTo(expectedType));
+		}
+		finally {
+			parser.close();
+		}
 	}
 
 }
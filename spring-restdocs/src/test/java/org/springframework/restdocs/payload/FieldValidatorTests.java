@@ -16,15 +16,32 @@
 package org.springframework.restdocs.payload;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.restdocs.config.DocumentationConfiguration;
 import org.springframework.restdocs.payload.FieldValidator.FieldValidationException;
+import org.springframework.restdocs.util.JsonSupport;
+import org.springframework.util.FileCopyUtils;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
 
 /**
  * Tests for {@link FieldValidator}
@@ -33,8 +50,6 @@ import org.springframework.restdocs.payload.FieldValidator.FieldValidationExcept
  */
 public class FieldValidatorTests {
 
-	private final FieldValidator fieldValidator = new FieldValidator();
-
 	@Rule
 	public ExpectedException thrownException = ExpectedException.none();
 
@@ -42,27 +57,27 @@ public class FieldValidatorTests {
 
 	@Test
 	public void noMissingFieldsAllFieldsDocumented() throws IOException {
-		this.fieldValidator.validate(this.payload, Arrays.asList(
+		validate(this.payload, Arrays.asList(
 				new FieldDescriptor("a"), new FieldDescriptor("a.b"),
 				new FieldDescriptor("a.c")));
 	}
 
 	@Test
 	public void optionalFieldsAreNotReportedMissing() throws IOException {
-		this.fieldValidator.validate(this.payload, Arrays.asList(
+		validate(this.payload, Arrays.asList(
 				new FieldDescriptor("a"), new FieldDescriptor("a.b"),
 				new FieldDescriptor("a.c"), new FieldDescriptor("y").optional()));
 	}
 
 	@Test
 	public void parentIsDocumentedWhenAllChildrenAreDocumented() throws IOException {
-		this.fieldValidator.validate(this.payload,
+		validate(this.payload,
 				Arrays.asList(new FieldDescriptor("a.b"), new FieldDescriptor("a.c")));
 	}
 
 	@Test
 	public void childIsDocumentedWhenParentIsDocumented() throws IOException {
-		this.fieldValidator.validate(this.payload,
+		validate(this.payload,
 				Arrays.asList(new FieldDescriptor("a")));
 	}
 
@@ -71,7 +86,7 @@ public class FieldValidatorTests {
 		this.thrownException.expect(FieldValidationException.class);
 		this.thrownException
 				.expectMessage(equalTo("Fields with the following paths were not found in the payload: [y, z]"));
-		this.fieldValidator.validate(this.payload, Arrays.asList(
+		validate(this.payload, Arrays.asList(
 				new FieldDescriptor("a"), new FieldDescriptor("a.b"),
 				new FieldDescriptor("y"), new FieldDescriptor("z")));
 	}
@@ -82,7 +97,178 @@ public class FieldValidatorTests {
 		this.thrownException
 				.expectMessage(equalTo(String
 						.format("Portions of the payload were not documented:%n{%n  \"a\" : {%n    \"c\" : true%n  }%n}")));
-		this.fieldValidator.validate(this.payload,
+		validate(this.payload,
+				Arrays.asList(new FieldDescriptor("a.b")));
+	}
+
+	@Test
+	public void undocumentedFieldsAlongsideDocumentedFields() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException
+				.expectMessage(equalTo(String
+						.format("Portions of the payload were not documented:%n{%n  \"b\" : [ 1, 2 ],%n  \"c\" : {%n    \"e\" : null%n  }%n}")));
+		validate(new StringReader(
+				"{\"a\":{\"x\":[{\"y\":1}]}, \"b\":[1,2], \"c\":{\"d\":true,\"e\":null}}"),
+				Arrays.asList(new FieldDescriptor("a"), new FieldDescriptor("c.d")));
+	}
+
+	@Test
+	public void emptyParentOfOptionalFieldIsNotReported() throws IOException {
+		validate(new StringReader("{\"a\":{}}"),
+				Arrays.asList(new FieldDescriptor("a.b").optional()));
+	}
+
+	@Test
+	public void nonObjectParentOfDocumentedFieldIsReported() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException
+				.expectMessage(equalTo(String
+						.format("Portions of the payload were not documented:%n{%n  \"a\" : \"alpha\"%n}"
+								+ "Fields with the following paths were not found in the payload: [a.b]")));
+		validate(new StringReader("{\"a\":\"alpha\"}"),
 				Arrays.asList(new FieldDescriptor("a.b")));
 	}
-}
+
+	@Test
+	public void payloadThatIsNotAnObject() throws IOException {
+		this.thrownException.expect(JsonMappingException.class);
+		validate(new StringReader("[]"),
+				Arrays.asList(new FieldDescriptor("a")));
+	}
+
+	@Test
+	public void fieldsOfArrayElementsAreDocumented() throws IOException {
+		validate(new StringReader(
+				"{\"a\":[{\"b\":1,\"c\":{\"d\":true}},{\"b\":2,\"c\":{\"d\":false}}]}"),
+				Arrays.asList(new FieldDescriptor("a[].b"), new FieldDescriptor("a[].c.d")));
+	}
+
+	@Test
+	public void arrayElementsAreDocumented() throws IOException {
+		validate(new StringReader("{\"a\":[[1,2],[{\"b\":true}]]}"),
+				Arrays.asList(new FieldDescriptor("a[]")));
+	}
+
+	@Test
+	public void elementsOfNestedArraysAreDocumented() throws IOException {
+		validate(new StringReader("{\"a\":[[{\"b\":1}],[{\"b\":2}]]}"),
+				Arrays.asList(new FieldDescriptor("a[][].b")));
+	}
+
+	@Test
+	public void undocumentedFieldsOfArrayElements() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException
+				.expectMessage(equalTo(String
+						.format("Portions of the payload were not documented:%n{%n  \"a\" : [ {%n    \"c\" : 2%n  } ]%n}")));
+		validate(new StringReader("{\"a\":[{\"b\":1},{\"b\":1,\"c\":2}]}"),
+				Arrays.asList(new FieldDescriptor("a[].b")));
+	}
+
+	@Test
+	public void missingFieldOfArrayElements() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException
+				.expectMessage(equalTo("Fields with the following paths were not found in the payload: [a[].b]"));
+		validate(new StringReader("{\"a\":[]}"),
+				Arrays.asList(new FieldDescriptor("a[]"), new FieldDescriptor("a[].b")));
+	}
+
+	@Test
+	public void undocumentedPortionsBeyondTheReportLimitAreTruncated() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException.expectMessage(equalTo(String.format(
+				"Portions of the payload were not documented:%n{%n  \"b\" : \"bra"
+						+ "%n[Truncated from 38 characters]%n")));
+		new FieldValidator(JsonSupport.getDefault(), 1024, 14).validate(
+				new StringReader("{\"a\":\"alpha\",\"b\":\"bravo\",\"c\":\"charlie\"}"),
+				new FieldPathTrie(Arrays.asList(new FieldDescriptor("a"))));
+	}
+
+	@Test
+	public void undocumentedPortionsBeyondTheMemoryThresholdAreSpilledToAFile()
+			throws IOException {
+		try {
+			new FieldValidator(JsonSupport.getDefault(), 16, 14).validate(
+					new StringReader("{\"a\":\"alpha\",\"b\":\"bravo\",\"c\":\"charlie\"}"),
+					new FieldPathTrie(Arrays.asList(new FieldDescriptor("a"))));
+			fail("Validation did not fail");
+		}
+		catch (FieldValidationException ex) {
+			Matcher matcher = Pattern.compile("written in full to '(.*)'").matcher(
+					ex.getMessage());
+			assertTrue(matcher.find());
+			File file = new File(matcher.group(1));
+			try {
+				assertThat(FileCopyUtils.copyToString(new FileReader(file)),
+						is(equalTo(String.format(
+								"{%n  \"b\" : \"bravo\",%n  \"c\" : \"charlie\"%n}"))));
+			}
+			finally {
+				file.delete();
+			}
+		}
+	}
+
+	@Test
+	public void typesOfNestedFieldsAreResolved() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader(
+				"{\"a\":{\"b\":{\"c\":\"charlie\"},\"d\":[]}}"), Arrays.asList(
+				new FieldDescriptor("a"), new FieldDescriptor("a.b"),
+				new FieldDescriptor("a.b.c"), new FieldDescriptor("a.d"),
+				new FieldDescriptor("e").optional()));
+		Map<String, FieldType> expectedTypes = new HashMap<String, FieldType>();
+		expectedTypes.put("a", FieldType.OBJECT);
+		expectedTypes.put("a.b", FieldType.OBJECT);
+		expectedTypes.put("a.b.c", FieldType.STRING);
+		expectedTypes.put("a.d", FieldType.ARRAY);
+		assertThat(fieldTypes, equalTo(expectedTypes));
+	}
+
+	@Test
+	public void typeOfFieldOfArrayElementsIsResolved() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader(
+				"{\"a\":[{\"b\":\"one\"},{\"b\":\"two\"}]}"),
+				Arrays.asList(new FieldDescriptor("a[].b")));
+		assertThat(fieldTypes.get("a[].b"), equalTo(FieldType.STRING));
+	}
+
+	@Test
+	public void typeOfFieldOfArrayElementsWithDifferentTypesVaries() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader(
+				"{\"a\":[{\"b\":\"one\"},{\"b\":2},{\"c\":true}]}"), Arrays.asList(
+				new FieldDescriptor("a[].b").optional(), new FieldDescriptor("a[].c")));
+		assertThat(fieldTypes.get("a[].b"), equalTo(FieldType.VARIES));
+	}
+
+	@Test
+	public void typeOfArrayElementsIsResolved() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader(
+				"{\"a\":[{},{}]}"), Arrays.asList(new FieldDescriptor("a[]")));
+		assertThat(fieldTypes.get("a[]"), equalTo(FieldType.OBJECT));
+	}
+
+	@Test
+	public void typeOfFieldOfNestedArrayElementsIsResolved() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader(
+				"{\"a\":[[{\"b\":1}],[{\"b\":2.5}]]}"),
+				Arrays.asList(new FieldDescriptor("a[][].b")));
+		assertThat(fieldTypes.get("a[][].b"), equalTo(FieldType.NUMBER));
+	}
+
+	@Test
+	public void optionalFieldThatIsNotPresentHasNoType() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(new StringReader("{\"a\":{}}"),
+				Arrays.asList(new FieldDescriptor("a"),
+						new FieldDescriptor("a.b").optional()));
+		assertThat(fieldTypes.containsKey("a.b"), is(false));
+	}
+
+	private Map<String, FieldType> validate(Reader payload,
+			List<FieldDescriptor> descriptors) throws IOException {
+		return new FieldValidator(JsonSupport.getDefault(),
+				DocumentationConfiguration.DEFAULT_PAYLOAD_MEMORY_THRESHOLD,
+				DocumentationConfiguration.DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT)
+				.validate(payload, new FieldPathTrie(descriptors));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SpillingWriter}.
+ *
+ * @author Andy Wilkinson
+ */
+public class SpillingWriterTests {
+
+	@Test
+	public void contentWithinTheThresholdIsHeldInMemory() throws IOException {
+		SpillingWriter writer = new SpillingWriter(16, ".txt");
+		writer.write("alpha");
+		writer.close();
+		assertThat(writer.getFile(), is(nullValue()));
+		assertThat(writer.getContent(3), is(equalTo("alp")));
+	}
+
+	@Test
+	public void spilledFileIsDeletedWhenTheWriterIsClosed() throws IOException {
+		SpillingWriter writer = new SpillingWriter(4, ".txt");
+		writer.write("alpha");
+		writer.flush();
+		File file = writer.getFile();
+		assertThat(file, is(notNullValue()));
+		assertThat(writer.getContent(16), is(equalTo("alpha")));
+		writer.close();
+		assertThat(file.exists(), is(false));
+	}
+
+	@Test
+	public void retainedFileIsNotDeletedWhenTheWriterIsClosed() throws IOException {
+		SpillingWriter writer = new SpillingWriter(4, ".txt");
+		writer.write("alpha");
+		writer.retain();
+		writer.close();
+		File file = writer.getFile();
+		try {
+			assertThat(file.exists(), is(true));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+}
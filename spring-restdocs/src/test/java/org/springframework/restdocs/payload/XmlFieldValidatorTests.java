@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.payload;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.restdocs.config.DocumentationConfiguration;
+import org.springframework.restdocs.payload.FieldValidator.FieldValidationException;
+
+/**
+ * Tests for {@link XmlFieldValidator}
+ *
+ * @author Andy Wilkinson
+ */
+public class XmlFieldValidatorTests {
+
+	@Rule
+	public ExpectedException thrownException = ExpectedException.none();
+
+	private final String payload = "<a id=\"1\"><b>bravo</b><c><d>true</d></c></a>";
+
+	@Test
+	public void allElementsAndAttributesDocumented() throws IOException {
+		validate(this.payload, Arrays.asList(new FieldDescriptor("/a/@id"),
+				new FieldDescriptor("/a/b"), new FieldDescriptor("/a/c/d")));
+	}
+
+	@Test
+	public void childrenAreDocumentedWhenParentIsDocumented() throws IOException {
+		validate(this.payload, Arrays.asList(new FieldDescriptor("a")));
+	}
+
+	@Test
+	public void undocumentedElement() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException.expectMessage(equalTo(String
+				.format("Portions of the payload were not documented:%n"
+						+ "<a><c><d>true</d></c></a>")));
+		validate(this.payload,
+				Arrays.asList(new FieldDescriptor("a/@id"), new FieldDescriptor("a/b")));
+	}
+
+	@Test
+	public void undocumentedAttribute() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException.expectMessage(equalTo(String
+				.format("Portions of the payload were not documented:%n<a id=\"1\"></a>")));
+		validate(this.payload,
+				Arrays.asList(new FieldDescriptor("a/b"), new FieldDescriptor("a/c")));
+	}
+
+	@Test
+	public void undocumentedText() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException.expectMessage(equalTo(String
+				.format("Portions of the payload were not documented:%n<a>alpha</a>")));
+		validate("<a>alpha<b/></a>", Arrays.asList(new FieldDescriptor("a/b")));
+	}
+
+	@Test
+	public void missingElement() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException
+				.expectMessage(equalTo("Fields with the following paths were not found in the payload: [a/e]"));
+		validate(this.payload,
+				Arrays.asList(new FieldDescriptor("a"), new FieldDescriptor("a/e")));
+	}
+
+	@Test
+	public void optionalElementsAreNotReportedMissing() throws IOException {
+		validate(this.payload, Arrays.asList(new FieldDescriptor("a"),
+				new FieldDescriptor("a/e").optional()));
+	}
+
+	@Test
+	public void repeatedElementsAreAllDocumented() throws IOException {
+		validate("<a><b><c>1</c></b><b><c>2</c></b></a>",
+				Arrays.asList(new FieldDescriptor("a/b/c")));
+	}
+
+	@Test
+	public void undocumentedContentOfRepeatedElements() throws IOException {
+		this.thrownException.expect(FieldValidationException.class);
+		this.thrownException.expectMessage(equalTo(String
+				.format("Portions of the payload were not documented:%n"
+						+ "<a><b><d>4</d></b></a>")));
+		validate("<a><b><c>1</c></b><b><c>2</c><d>4</d></b></a>",
+				Arrays.asList(new FieldDescriptor("a/b/c")));
+	}
+
+	@Test
+	public void namespacedElementsAreDocumentedUsingTheirQualifiedNames()
+			throws IOException {
+		validate("<x:a xmlns:x=\"urn:x\"><x:b/></x:a>",
+				Arrays.asList(new FieldDescriptor("x:a/x:b")));
+	}
+
+	@Test
+	public void payloadThatIsNotWellFormed() throws IOException {
+		this.thrownException.expect(IOException.class);
+		this.thrownException.expectMessage("The payload is not well-formed XML");
+		validate("<a><b></a>", Arrays.asList(new FieldDescriptor("a")));
+	}
+
+	@Test
+	public void typesAreInferred() throws IOException {
+		Map<String, FieldType> fieldTypes = validate(
+				"<a id=\"1\"><b>bravo</b><c><d>true</d></c><e/><f>1</f><f>x</f></a>",
+				Arrays.asList(new FieldDescriptor("a"), new FieldDescriptor("a/@id"),
+						new FieldDescriptor("a/b"), new FieldDescriptor("a/c"),
+						new FieldDescriptor("a/c/d"), new FieldDescriptor("a/e"),
+						new FieldDescriptor("a/f")));
+		Map<String, FieldType> expectedTypes = new HashMap<String, FieldType>();
+		expectedTypes.put("a", FieldType.OBJECT);
+		expectedTypes.put("a/@id", FieldType.NUMBER);
+		expectedTypes.put("a/b", FieldType.STRING);
+		expectedTypes.put("a/c", FieldType.OBJECT);
+		expectedTypes.put("a/c/d", FieldType.BOOLEAN);
+		expectedTypes.put("a/e", FieldType.NULL);
+		expectedTypes.put("a/f", FieldType.VARIES);
+		assertThat(fieldTypes, equalTo(expectedTypes));
+	}
+
+	private Map<String, FieldType> validate(String payload,
+			List<FieldDescriptor> descriptors) throws IOException {
+		return new XmlFieldValidator(
+				DocumentationConfiguration.DEFAULT_PAYLOAD_MEMORY_THRESHOLD,
+				DocumentationConfiguration.DEFAULT_UNDOCUMENTED_PAYLOAD_REPORT_LIMIT)
+				.validate(new StringReader(payload), new FieldPathTrie(descriptors, '/'));
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AsynchronousSnippetWriter}.
+ *
+ * @author Andy Wilkinson
+ */
+public class AsynchronousSnippetWriterTests {
+
+	@Test
+	public void writesToTheSamePathArePerformedInTheOrderTheyWereSubmitted()
+			throws Exception {
+		final InMemorySnippetStore store = new InMemorySnippetStore();
+		List<Future<Void>> writes = new ArrayList<Future<Void>>();
+		for (int i = 0; i < 20; i++) {
+			final String snippet = Integer.toString(i);
+			final long delay = i % 2 == 0 ? 5 : 0;
+			writes.add(AsynchronousSnippetWriter.submit("snippet.adoc",
+					new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							Thread.sleep(delay);
+							store.store("snippet.adoc", snippet);
+							return null;
+						}
+
+					}));
+		}
+		for (Future<Void> write : writes) {
+			write.get();
+		}
+		assertThat(store.getSnippet("snippet.adoc"), is(equalTo("19")));
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.restdocs.curl.CurlDocumentation.documentCurlRequest;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.restdocs.StubMvcResult;
+import org.springframework.restdocs.config.RestDocumentationConfigurer;
+import org.springframework.restdocs.config.RestDocumentationTestExecutionListener;
+import org.springframework.test.context.TestContext;
+
+/**
+ * Tests for {@link BatchingSnippetStore}.
+ *
+ * @author Andy Wilkinson
+ */
+public class BatchingSnippetStoreTests {
+
+	private final InMemorySnippetStore delegate = new InMemorySnippetStore();
+
+	@Test
+	public void snippetsAreHeldUntilFlushed() throws IOException {
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		store.store("one/snippet.adoc", "alpha");
+		store.store("two/snippet.adoc", "bravo");
+		assertThat(this.delegate.getSnippets(),
+				is(equalTo(Collections.<String, String> emptyMap())));
+		store.flush();
+		assertThat(this.delegate.getSnippets().keySet(), is(equalTo(snippetPaths(
+				"one/snippet.adoc", "two/snippet.adoc"))));
+	}
+
+	@Test
+	public void laterSnippetWithTheSamePathReplacesEarlierSnippet() throws IOException {
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		store.store("snippet.adoc", "alpha");
+		store.store("snippet.adoc", "bravo");
+		store.flush();
+		assertThat(this.delegate.getSnippet("snippet.adoc"), is(equalTo("bravo")));
+	}
+
+	@Test
+	public void snippetsAreStoredOnceCapacityIsExceeded() throws IOException {
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate, 8);
+		store.store("one.adoc", "alpha");
+		assertThat(this.delegate.getSnippets().isEmpty(), is(true));
+		store.store("two.adoc", "bravo");
+		assertThat(this.delegate.getSnippets().keySet(),
+				is(equalTo(snippetPaths("one.adoc", "two.adoc"))));
+	}
+
+	@Test
+	public void snippetsAreStoredWhenTheTestClassEnds() throws Exception {
+		RestDocumentationTestExecutionListener listener = new RestDocumentationTestExecutionListener();
+		TestContext testContext = mock(TestContext.class);
+		Method method = getClass().getMethod("snippetsAreStoredWhenTheTestClassEnds");
+		when(testContext.getTestMethod()).thenReturn(method);
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		listener.beforeTestMethod(testContext);
+		store.store("snippet.adoc", "alpha");
+		listener.afterTestMethod(testContext);
+		assertThat(this.delegate.getSnippets().isEmpty(), is(true));
+		listener.afterTestClass(testContext);
+		assertThat(this.delegate.getSnippet("snippet.adoc"), is(equalTo("alpha")));
+	}
+
+	@Test
+	public void snippetsAreStoredWhenTheStoreIsClosed() throws IOException {
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		store.store("snippet.adoc", "alpha");
+		store.close();
+		assertThat(this.delegate.getSnippet("snippet.adoc"), is(equalTo("alpha")));
+	}
+
+	@Test
+	public void snippetsOfEachTestClassAreStoredWhenThatTestClassEnds()
+			throws Exception {
+		RestDocumentationTestExecutionListener listener = new RestDocumentationTestExecutionListener();
+		TestContext first = mock(TestContext.class);
+		doReturn(String.class).when(first).getTestClass();
+		TestContext second = mock(TestContext.class);
+		doReturn(Integer.class).when(second).getTestClass();
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		listener.beforeTestClass(first);
+		listener.afterTestClass(first);
+		listener.beforeTestClass(second);
+		store.store("snippet.adoc", "alpha");
+		assertThat(this.delegate.getSnippets().isEmpty(), is(true));
+		listener.afterTestClass(second);
+		assertThat(this.delegate.getSnippet("snippet.adoc"), is(equalTo("alpha")));
+	}
+
+	@Test
+	public void snippetsDocumentedOnAnotherThreadAreStoredWhenTheirTestClassEnds()
+			throws Exception {
+		RestDocumentationTestExecutionListener listener = new RestDocumentationTestExecutionListener();
+		TestContext testContext = mock(TestContext.class);
+		doReturn(String.class).when(testContext).getTestClass();
+		when(testContext.getTestMethod()).thenReturn(
+				getClass().getMethod(
+						"snippetsDocumentedOnAnotherThreadAreStoredWhenTheirTestClassEnds"));
+		BatchingSnippetStore store = new BatchingSnippetStore(this.delegate);
+		listener.beforeTestClass(testContext);
+		listener.beforeTestMethod(testContext);
+		final MockHttpServletRequest request = new RestDocumentationConfigurer()
+				.withSnippetStore(store).beforeMockMvcCreated(null, null)
+				.postProcessRequest(new MockHttpServletRequest("GET", "/foo"));
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread thread = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					documentCurlRequest("curl").handle(new StubMvcResult(request, null));
+				}
+				catch (Exception ex) {
+					failure.set(ex);
+				}
+			}
+
+		};
+		thread.start();
+		thread.join();
+		assertThat(failure.get(), is(nullValue()));
+		listener.afterTestMethod(testContext);
+		assertThat(this.delegate.getSnippets().isEmpty(), is(true));
+		listener.afterTestClass(testContext);
+		assertThat(this.delegate.getSnippets().size(), is(1));
+	}
+
+	private Set<String> snippetPaths(String... paths) {
+		return new HashSet<String>(Arrays.asList(paths));
+	}
+
+}
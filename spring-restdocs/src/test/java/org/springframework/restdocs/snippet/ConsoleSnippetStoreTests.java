@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConsoleSnippetStore}.
+ *
+ * @author Andy Wilkinson
+ */
+public class ConsoleSnippetStoreTests {
+
+	private final ConsoleSnippetStore store = new ConsoleSnippetStore();
+
+	private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+	private PrintStream out;
+
+	@Before
+	public void captureConsole() {
+		this.out = System.out;
+		System.setOut(new PrintStream(this.console) {
+
+			@Override
+			public void close() {
+				throw new IllegalStateException("The console must not be closed");
+			}
+
+		});
+	}
+
+	@After
+	public void restoreConsole() {
+		System.setOut(this.out);
+	}
+
+	@Test
+	public void snippetIsLabelledWithItsPath() throws IOException {
+		this.store.store("one/snippet.adoc", String.format("alpha%n"));
+		assertThat(getConsoleOutput(),
+				is(equalTo(String.format("==> one/snippet.adoc <==%nalpha%n%n"))));
+	}
+
+	@Test
+	public void snippetThatDoesNotEndWithALineSeparator() throws IOException {
+		this.store.store("snippet.adoc", "alpha");
+		assertThat(getConsoleOutput(),
+				is(equalTo(String.format("==> snippet.adoc <==%nalpha%n%n"))));
+	}
+
+	@Test
+	public void concurrentSnippetsAreNotInterleaved() throws Exception {
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			content.append(String.format("line %d%n", i));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> stores = new ArrayList<Future<Void>>();
+			for (int i = 0; i < 8; i++) {
+				final String path = "snippet-" + i + ".adoc";
+				stores.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						ConsoleSnippetStoreTests.this.store.store(path, content);
+						return null;
+					}
+
+				}));
+			}
+			for (Future<Void> store : stores) {
+				store.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		String output = getConsoleOutput();
+		for (int i = 0; i < 8; i++) {
+			String expected = String.format("==> snippet-%d.adoc <==%n%s%n", i, content);
+			assertThat(output.contains(expected), is(true));
+		}
+	}
+
+	private String getConsoleOutput() {
+		System.out.flush();
+		return new String(this.console.toByteArray());
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.restdocs.snippet.SnippetFiles.read;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Tests for {@link FileSystemSnippetStore}.
+ *
+ * @author Andy Wilkinson
+ */
+public class FileSystemSnippetStoreTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final FileSystemSnippetStore store = new FileSystemSnippetStore();
+
+	@Before
+	public void setOutputDirSystemProperty() {
+		System.setProperty("org.springframework.restdocs.outputDir", this.temp.getRoot()
+				.getAbsolutePath());
+	}
+
+	@After
+	public void clearOutputDirSystemProperty() {
+		System.clearProperty("org.springframework.restdocs.outputDir");
+	}
+
+	@Test
+	public void snippetIsWrittenBeneathTheOutputDirectory() throws IOException {
+		this.store.store("one/two/snippet.adoc", "alpha");
+		assertThat(read(new File(this.temp.getRoot(), "one/two/snippet.adoc"),
+				Charset.defaultCharset()),
+				is(equalTo("alpha")));
+	}
+
+	@Test
+	public void snippetWithAnAbsolutePath() throws IOException {
+		File snippet = new File(this.temp.newFolder(), "snippet.adoc");
+		this.store.store(snippet.getAbsolutePath(), "alpha");
+		assertThat(read(snippet, Charset.defaultCharset()), is(equalTo("alpha")));
+	}
+
+	@Test
+	public void directoryThatIsRemovedAfterBeingCreatedIsCreatedAgain()
+			throws IOException {
+		this.store.store("one/snippet.adoc", "alpha");
+		FileSystemUtils.deleteRecursively(new File(this.temp.getRoot(), "one"));
+		this.store.store("one/snippet.adoc", "bravo");
+		assertThat(read(new File(this.temp.getRoot(), "one/snippet.adoc"),
+				Charset.defaultCharset()),
+				is(equalTo("bravo")));
+	}
+
+	@Test
+	public void staleTemporaryFilesAreDeleted() throws IOException {
+		File stale = this.temp.newFile(".snippet.adoc.123.tmp");
+		assertTrue(stale.setLastModified(System.currentTimeMillis() - 3600 * 1000));
+		File recent = this.temp.newFile(".snippet.adoc.456.tmp");
+		this.store.store("snippet.adoc", "alpha");
+		assertFalse(stale.exists());
+		assertTrue(recent.exists());
+	}
+
+	@Test
+	public void snippetIsWrittenToTheConsoleWithoutAnOutputDirectory()
+			throws IOException {
+		System.clearProperty("org.springframework.restdocs.outputDir");
+		PrintStream out = System.out;
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(console));
+		try {
+			this.store.store("snippet.adoc", "alpha");
+		}
+		finally {
+			System.setOut(out);
+		}
+		assertThat(new String(console.toByteArray()), is(equalTo(String.format(
+				"==> snippet.adoc <==%nalpha%n%n"))));
+	}
+
+}
@@ -26,6 +26,7 @@ import java.io.File;
 import java.lang.reflect.Method;
 
 import org.junit.Test;
+import org.springframework.restdocs.config.RestDocumentationContext;
 import org.springframework.restdocs.config.RestDocumentationTestExecutionListener;
 import org.springframework.test.context.TestContext;
 
@@ -40,13 +41,13 @@ public class OutputFileResolverTests {
 
 	@Test
 	public void noConfiguredOutputDirectoryAndRelativeInput() {
-		assertThat(this.resolver.resolve("foo", "bar.txt"), is(nullValue()));
+		assertThat(resolve("foo", "bar.txt"), is(nullValue()));
 	}
 
 	@Test
 	public void absoluteInput() {
 		String absolutePath = new File("foo").getAbsolutePath();
-		assertThat(this.resolver.resolve(absolutePath, "bar.txt"), is(new File(
+		assertThat(resolve(absolutePath, "bar.txt"), is(new File(
 				absolutePath, "bar.txt")));
 	}
 
@@ -55,7 +56,7 @@ public class OutputFileResolverTests {
 		String outputDir = new File("foo").getAbsolutePath();
 		System.setProperty("org.springframework.restdocs.outputDir", outputDir);
 		try {
-			assertThat(this.resolver.resolve("bar", "baz.txt"), is(new File(outputDir,
+			assertThat(resolve("bar", "baz.txt"), is(new File(outputDir,
 					"bar/baz.txt")));
 		}
 		finally {
@@ -69,7 +70,7 @@ public class OutputFileResolverTests {
 		String absolutePath = new File("bar").getAbsolutePath();
 		System.setProperty("org.springframework.restdocs.outputDir", outputDir);
 		try {
-			assertThat(this.resolver.resolve(absolutePath, "baz.txt"), is(new File(
+			assertThat(resolve(absolutePath, "baz.txt"), is(new File(
 					absolutePath, "baz.txt")));
 		}
 		finally {
@@ -79,7 +80,7 @@ public class OutputFileResolverTests {
 
 	@Test(expected = IllegalStateException.class)
 	public void placeholderWithoutAReplacement() {
-		this.resolver.resolve("{method-name}", "foo.txt");
+		resolve("{method-name}", "foo.txt");
 	}
 
 	@Test
@@ -90,7 +91,7 @@ public class OutputFileResolverTests {
 		when(testContext.getTestMethod()).thenReturn(method);
 		listener.beforeTestMethod(testContext);
 		try {
-			assertThat(this.resolver.resolve(new File("{method-name}").getAbsolutePath(),
+			assertThat(resolve(new File("{method-name}").getAbsolutePath(),
 					"foo.txt"),
 					is(new File(new File("dash-separated-method-name").getAbsolutePath(),
 							"foo.txt")));
@@ -109,7 +110,7 @@ public class OutputFileResolverTests {
 		listener.beforeTestMethod(testContext);
 		try {
 			assertThat(
-					this.resolver.resolve(new File("{method_name}").getAbsolutePath(),
+					resolve(new File("{method_name}").getAbsolutePath(),
 							"foo.txt"),
 					is(new File(new File("underscore_separated_method_name")
 							.getAbsolutePath(), "foo.txt")));
@@ -127,7 +128,7 @@ public class OutputFileResolverTests {
 		when(testContext.getTestMethod()).thenReturn(method);
 		listener.beforeTestMethod(testContext);
 		try {
-			assertThat(this.resolver.resolve(new File("{methodName}").getAbsolutePath(),
+			assertThat(resolve(new File("{methodName}").getAbsolutePath(),
 					"foo.txt"),
 					is(new File(new File("camelCaseMethodName").getAbsolutePath(),
 							"foo.txt")));
@@ -145,11 +146,56 @@ public class OutputFileResolverTests {
 		when(testContext.getTestMethod()).thenReturn(method);
 		listener.beforeTestMethod(testContext);
 		try {
-			assertThat(this.resolver.resolve(new File("{step}").getAbsolutePath(),
+			assertThat(resolve(new File("{step}").getAbsolutePath(),
 					"foo.txt"), is(new File(new File("0").getAbsolutePath(), "foo.txt")));
 		}
 		finally {
 			listener.afterTestMethod(testContext);
 		}
 	}
+
+	@Test
+	public void multiplePlaceholdersAndLiteralText() throws Exception {
+		RestDocumentationTestExecutionListener listener = new RestDocumentationTestExecutionListener();
+		TestContext testContext = mock(TestContext.class);
+		Method method = getClass().getMethod("multiplePlaceholdersAndLiteralText");
+		when(testContext.getTestMethod()).thenReturn(method);
+		listener.beforeTestMethod(testContext);
+		try {
+			String template = new File("{methodName}/{method-name}-{step}")
+					.getAbsolutePath();
+			File expected = new File(new File(
+					"multiplePlaceholdersAndLiteralText/multiple-placeholders-and-literal-text-0")
+					.getAbsolutePath(), "foo.txt");
+			assertThat(resolve(template, "foo.txt"), is(expected));
+			assertThat(resolve(template, "foo.txt"), is(expected));
+		}
+		finally {
+			listener.afterTestMethod(testContext);
+		}
+	}
+
+	@Test
+	public void unrecognizedPlaceholdersAreLeftAsTheyAre() {
+		String absolutePath = new File("{foo}/{").getAbsolutePath();
+		assertThat(resolve(absolutePath, "bar.txt"), is(new File(
+				absolutePath, "bar.txt")));
+	}
+
+	@Test
+	public void relativePath() {
+		assertThat(this.resolver.resolvePath("foo/./bar", "baz.txt", null),
+				is("foo/bar/baz.txt"));
+	}
+
+	@Test
+	public void relativePathOfAFileThatIsNotInADirectory() {
+		assertThat(this.resolver.resolvePath("", "baz.txt", null), is("baz.txt"));
+	}
+
+	private File resolve(String outputDirectory, String fileName) {
+		return this.resolver.resolveFile(this.resolver.resolvePath(outputDirectory,
+				fileName, RestDocumentationContext.currentContext()));
+	}
+
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.springframework.restdocs.snippet.SnippetFiles.UTF_8;
+import static org.springframework.restdocs.snippet.SnippetFiles.read;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Tests for {@link SnippetArchive}.
+ *
+ * @author Andy Wilkinson
+ */
+public class SnippetArchiveTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@After
+	public void completeParts() throws IOException {
+		SnippetArchive.completeParts();
+	}
+
+	@Test
+	public void snippetsAreWrittenToAPartThatIsMergedIntoTheArchive() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		write(archive, "one/request.adoc", "alpha");
+		write(archive, "two/request.adoc", "bravo");
+		SnippetArchive.completeParts();
+		assertThat(this.temp.getRoot().list().length, is(1));
+		SnippetArchive.merge(archive);
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippets.zip"))));
+		assertThat(readEntries(archive), is(equalTo(Arrays.asList(
+				"one/request.adoc=alpha", "two/request.adoc=bravo"))));
+	}
+
+	@Test
+	public void snippetThatIsWrittenAgainWithTheSameContentIsIncludedOnce()
+			throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		write(archive, "request.adoc", "alpha");
+		write(archive, "request.adoc", "alpha");
+		SnippetArchive.completeParts();
+		SnippetArchive.merge(archive);
+		assertThat(readEntries(archive),
+				is(equalTo(Arrays.asList("request.adoc=alpha"))));
+	}
+
+	@Test
+	public void lastSnippetWrittenWithTheSameNameWins() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		write(archive, "request.adoc", "alpha");
+		write(archive, "request.adoc", "bravo");
+		SnippetArchive.completeParts();
+		write(archive, "request.adoc", "charlie");
+		write(archive, "response.adoc", "delta");
+		SnippetArchive.completeParts();
+		SnippetArchive.merge(archive);
+		assertThat(readEntries(archive), is(equalTo(Arrays.asList(
+				"request.adoc=charlie", "response.adoc=delta"))));
+	}
+
+	@Test
+	public void partsWrittenByDifferentJvmsAreMerged() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		writeZip(new File(this.temp.getRoot(), "snippets.zip.a.part"),
+				"1-1/one/request.adoc", "alpha", "1-2/shared.adoc", "charlie");
+		writeZip(new File(this.temp.getRoot(), "snippets.zip.b.part"),
+				"2-1/two/request.adoc", "bravo", "2-2/shared.adoc", "delta");
+		SnippetArchive.merge(archive);
+		assertThat(readEntries(archive), is(equalTo(Arrays.asList(
+				"one/request.adoc=alpha", "two/request.adoc=bravo", "shared.adoc=delta"))));
+	}
+
+	@Test
+	public void latestSnippetWinsRegardlessOfTheOrderOfTheParts() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		writeZip(new File(this.temp.getRoot(), "snippets.zip.a.part"),
+				"2-1/request.adoc", "bravo");
+		writeZip(new File(this.temp.getRoot(), "snippets.zip.b.part"),
+				"1-1/request.adoc", "alpha");
+		SnippetArchive.merge(archive);
+		assertThat(readEntries(archive),
+				is(equalTo(Arrays.asList("request.adoc=bravo"))));
+	}
+
+	@Test
+	public void cleanDeletesTheArchiveAndItsPartsAndStartsARun() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		writeZip(archive, "request.adoc", "alpha");
+		writeZip(new File(this.temp.getRoot(), "snippets.zip.a.part"),
+				"1-1/request.adoc", "alpha");
+		write(archive, "response.adoc", "bravo");
+		SnippetArchive.clean(archive);
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippets.zip.run"))));
+	}
+
+	@Test
+	public void partsWrittenDuringARunAreMerged() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		SnippetArchive.clean(archive);
+		write(archive, "request.adoc", "alpha");
+		SnippetArchive.completeParts();
+		SnippetArchive.merge(archive);
+		assertThat(readEntries(archive),
+				is(equalTo(Arrays.asList("request.adoc=alpha"))));
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippets.zip"))));
+	}
+
+	@Test
+	public void partThatWasNotWrittenDuringTheCurrentRunIsReported()
+			throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		SnippetArchive.clean(archive);
+		write(archive, "request.adoc", "alpha");
+		SnippetArchive.completeParts();
+		File stale = new File(this.temp.getRoot(), "snippets.zip.a.part");
+		writeZip(stale, "1-1/stale.adoc", "alpha");
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Part '" + stale + "' of '" + archive
+				+ "' was not written during the current run");
+		try {
+			SnippetArchive.merge(archive);
+		}
+		finally {
+			assertFalse(archive.exists());
+		}
+	}
+
+	@Test
+	public void incompletePartIsReported() throws IOException {
+		File archive = new File(this.temp.getRoot(), "snippets.zip");
+		File part = new File(this.temp.getRoot(), "snippets.zip.a.part");
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(part));
+		output.putNextEntry(new ZipEntry("1-1/request.adoc"));
+		output.write("alpha".getBytes(UTF_8));
+		output.flush();
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Part '" + part + "' of '" + archive
+				+ "' is incomplete");
+		try {
+			SnippetArchive.merge(archive);
+		}
+		finally {
+			output.close();
+			assertFalse(archive.exists());
+		}
+	}
+
+	@Test
+	public void mergeWithoutAnyParts() throws IOException {
+		this.thrown.expect(IOException.class);
+		SnippetArchive.merge(new File(this.temp.getRoot(), "snippets.zip"));
+	}
+
+	@Test
+	public void archiveIsExtracted() throws IOException {
+		File archive = this.temp.newFile("snippets.zip");
+		writeZip(archive, "one/request.adoc", "alpha", "two/response.adoc", "bravo");
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetArchive.extract(archive, outputDirectory);
+		assertThat(read(new File(outputDirectory, "one/request.adoc")),
+				is(equalTo("alpha")));
+		assertThat(read(new File(outputDirectory, "two/response.adoc")),
+				is(equalTo("bravo")));
+	}
+
+	@Test
+	public void entryOutsideOfTheOutputDirectoryIsNotExtracted() throws IOException {
+		File archive = this.temp.newFile("snippets.zip");
+		writeZip(archive, "../escaped.adoc", "alpha");
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Snippet '../escaped.adoc' is outside of the output "
+				+ "directory");
+		SnippetArchive.extract(archive, new File(this.temp.getRoot(), "snippets"));
+	}
+
+	private void write(File archive, String name, String content) throws IOException {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write(content);
+			SnippetArchive.write(archive, name, buffer, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+	private void writeZip(File file, String... namesAndContent) throws IOException {
+		ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			for (int i = 0; i < namesAndContent.length; i += 2) {
+				output.putNextEntry(new ZipEntry(namesAndContent[i]));
+				output.write(namesAndContent[i + 1].getBytes(UTF_8));
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private List<String> readEntries(File archive) throws IOException {
+		List<String> entries = new ArrayList<String>();
+		ZipInputStream input = new ZipInputStream(new FileInputStream(archive));
+		try {
+			ZipEntry entry;
+			while ((entry = input.getNextEntry()) != null) {
+				entries.add(entry.getName() + "="
+						+ new String(StreamUtils.copyToByteArray(input), UTF_8));
+			}
+		}
+		finally {
+			input.close();
+		}
+		return entries;
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.restdocs.snippet.SnippetFiles.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link SnippetBuffer}.
+ *
+ * @author Andy Wilkinson
+ */
+public class SnippetBufferTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void bufferIsReusedOnceReleased() {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		buffer.release();
+		SnippetBuffer reused = SnippetBuffer.acquire();
+		try {
+			assertThat(reused, is(sameInstance(buffer)));
+		}
+		finally {
+			reused.release();
+		}
+	}
+
+	@Test
+	public void bufferThatIsInUseIsNotShared() {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			SnippetBuffer other = SnippetBuffer.acquire();
+			assertThat(other, is(not(sameInstance(buffer))));
+			other.release();
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+	@Test
+	public void bufferThatWasNotTheThreadsOwnIsReusedOnceReleased() {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			Set<SnippetBuffer> others = Collections.newSetFromMap(
+					new IdentityHashMap<SnippetBuffer, Boolean>());
+			for (int i = 0; i < 1000; i++) {
+				SnippetBuffer other = SnippetBuffer.acquire();
+				others.add(other);
+				other.release();
+			}
+			assertThat(others.size() < 100, is(true));
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+	@Test
+	public void releasedBufferIsEmptied() throws IOException {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		buffer.write("alpha");
+		buffer.release();
+		buffer = SnippetBuffer.acquire();
+		try {
+			assertThat(buffer.getContent().length(), is(equalTo(0)));
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+	@Test
+	public void writeToFileReplacesItsContent() throws IOException {
+		File file = this.temp.newFile("snippet.adoc");
+		FileCopyUtils.copy("existing content that is longer", new FileWriter(file));
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write("caf\u00e9");
+			buffer.writeTo(file, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+		assertThat(FileCopyUtils.copyToByteArray(file),
+				is(equalTo("caf\u00e9".getBytes(UTF_8))));
+	}
+
+	@Test
+	public void noTemporaryFileIsLeftBehind() throws IOException {
+		File file = this.temp.newFile("snippet.adoc");
+		assertThat(write("alpha", file), is(true));
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippet.adoc"))));
+	}
+
+	@Test
+	public void temporaryFileIsRemovedWhenWriteFails() throws IOException {
+		File directory = this.temp.newFile("snippet.adoc");
+		assertTrue(directory.delete());
+		assertTrue(directory.mkdir());
+		assertTrue(new File(directory, "child").createNewFile());
+		try {
+			write("alpha", directory);
+			fail("Write should have failed");
+		}
+		catch (IOException ex) {
+			// Expected
+		}
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippet.adoc"))));
+	}
+
+	@Test
+	public void unchangedFileIsNotRewritten() throws IOException {
+		File file = this.temp.newFile("snippet.adoc");
+		FileCopyUtils.copy("alpha".getBytes(UTF_8), file);
+		assertTrue(file.setLastModified(file.lastModified() - 60000));
+		long lastModified = file.lastModified();
+		assertThat(write("alpha", file), is(false));
+		assertThat(file.lastModified(), is(equalTo(lastModified)));
+	}
+
+	@Test
+	public void fileWithDifferentContentOfTheSameLengthIsRewritten() throws IOException {
+		File file = this.temp.newFile("snippet.adoc");
+		FileCopyUtils.copy("alpha".getBytes(UTF_8), file);
+		assertThat(write("bravo", file), is(true));
+		assertThat(FileCopyUtils.copyToByteArray(file),
+				is(equalTo("bravo".getBytes(UTF_8))));
+	}
+
+	@Test
+	public void emptySnippetIsWrittenToNewFile() throws IOException {
+		File file = new File(this.temp.getRoot(), "snippet.adoc");
+		assertThat(write("", file), is(true));
+		assertThat(file.isFile(), is(true));
+	}
+
+	@Test
+	public void writeToOutputStream() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write("alpha");
+			buffer.writeTo(outputStream, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+		assertThat(outputStream.toString("UTF-8"), is(equalTo("alpha")));
+	}
+
+	private boolean write(String content, File file) throws IOException {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write(content);
+			return buffer.writeTo(file, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.snippet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Support for the tests of the files to which snippets are written.
+ * 
+ * @author Andy Wilkinson
+ */
+final class SnippetFiles {
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private SnippetFiles() {
+
+	}
+
+	/**
+	 * Reads the content of the given {@code file} using UTF-8.
+	 * 
+	 * @param file the file
+	 * @return the content
+	 * @throws IOException if the file cannot be read
+	 */
+	static String read(File file) throws IOException {
+		return read(file, UTF_8);
+	}
+
+	/**
+	 * Reads the content of the given {@code file} using the given {@code charset}.
+	 * 
+	 * @param file the file
+	 * @param charset the charset
+	 * @return the content
+	 * @throws IOException if the file cannot be read
+	 */
+	static String read(File file, Charset charset) throws IOException {
+		return FileCopyUtils.copyToString(new InputStreamReader(
+				new FileInputStream(file), charset));
+	}
+
+}
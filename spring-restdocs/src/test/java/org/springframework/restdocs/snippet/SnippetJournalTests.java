@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.restdocs.snippet.SnippetFiles.UTF_8;
+import static org.springframework.restdocs.snippet.SnippetFiles.read;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SnippetJournal}.
+ *
+ * @author Andy Wilkinson
+ */
+public class SnippetJournalTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@After
+	public void completeParts() throws IOException {
+		SnippetJournal.completeParts();
+	}
+
+	@Test
+	public void snippetsAreExtracted() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "one/request.adoc", "alpha");
+		append(journal, "two/response.adoc", "caf\u00e9");
+		SnippetJournal.completeParts();
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(read(new File(outputDirectory, "one/request.adoc")),
+				is(equalTo("alpha")));
+		assertThat(read(new File(outputDirectory, "two/response.adoc")),
+				is(equalTo("caf\u00e9")));
+	}
+
+	@Test
+	public void lastSnippetWrittenToAPathWins() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "request.adoc", "alpha");
+		append(journal, "request.adoc", "bravo");
+		SnippetJournal.completeParts();
+		append(journal, "request.adoc", "charlie");
+		append(journal, "response.adoc", "delta");
+		SnippetJournal.completeParts();
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(read(new File(outputDirectory, "request.adoc")),
+				is(equalTo("charlie")));
+		assertThat(read(new File(outputDirectory, "response.adoc")),
+				is(equalTo("delta")));
+	}
+
+	@Test
+	public void latestSnippetWinsRegardlessOfTheOrderOfTheParts() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "request.adoc", "alpha");
+		SnippetJournal.completeParts();
+		File part = PartFiles.findParts(journal)[0];
+		assertTrue(part.renameTo(new File(part.getParentFile(),
+				"snippets.journal.zzz-1.part")));
+		append(journal, "request.adoc", "bravo");
+		SnippetJournal.completeParts();
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(read(new File(outputDirectory, "request.adoc")),
+				is(equalTo("bravo")));
+	}
+
+	@Test
+	public void partsAreDeletedOnceExtracted() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "request.adoc", "alpha");
+		SnippetJournal.completeParts();
+		append(journal, "response.adoc", "bravo");
+		SnippetJournal.extract(journal, new File(this.temp.getRoot(), "one"));
+		assertThat(PartFiles.findParts(journal).length, is(0));
+		append(journal, "request.adoc", "charlie");
+		File outputDirectory = new File(this.temp.getRoot(), "two");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(Arrays.asList(outputDirectory.list()),
+				is(equalTo(Arrays.asList("request.adoc"))));
+		assertThat(read(new File(outputDirectory, "request.adoc")),
+				is(equalTo("charlie")));
+	}
+
+	@Test
+	public void snippetsCanBeExtractedBeforeThePartIsCompleted() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "request.adoc", "alpha");
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(read(new File(outputDirectory, "request.adoc")),
+				is(equalTo("alpha")));
+	}
+
+	@Test
+	public void largeSnippetsSpanChunks() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		StringBuilder content = new StringBuilder();
+		while (content.length() < 5 * 1024 * 1024) {
+			content.append("alpha bravo charlie delta ");
+		}
+		append(journal, "one.adoc", content.toString());
+		append(journal, "two.adoc", content.toString());
+		SnippetJournal.completeParts();
+		File outputDirectory = new File(this.temp.getRoot(), "generated-snippets");
+		SnippetJournal.extract(journal, outputDirectory);
+		assertThat(read(new File(outputDirectory, "two.adoc")),
+				is(equalTo(content.toString())));
+	}
+
+	@Test
+	public void corruptSnippet() throws IOException {
+		File journal = new File(this.temp.getRoot(), "snippets.journal");
+		append(journal, "request.adoc", "alpha");
+		SnippetJournal.completeParts();
+		File part = PartFiles.findParts(journal)[0];
+		RandomAccessFile file = new RandomAccessFile(part, "rw");
+		try {
+			file.seek(file.length() - 1);
+			file.write('x');
+		}
+		finally {
+			file.close();
+		}
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("is corrupt");
+		SnippetJournal.extract(journal, new File(this.temp.getRoot(), "snippets"));
+	}
+
+	@Test
+	public void extractWithoutAnyParts() throws IOException {
+		this.thrown.expect(IOException.class);
+		SnippetJournal.extract(new File(this.temp.getRoot(), "snippets.journal"),
+				this.temp.getRoot());
+	}
+
+	private void append(File journal, String path, String content) throws IOException {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write(content);
+			SnippetJournal.append(journal, path, buffer, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+}
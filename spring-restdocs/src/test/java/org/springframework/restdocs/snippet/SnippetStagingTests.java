@@ -0,0 +1,264 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.restdocs.snippet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.restdocs.snippet.SnippetFiles.UTF_8;
+import static org.springframework.restdocs.snippet.SnippetFiles.read;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link SnippetStaging}.
+ *
+ * @author Andy Wilkinson
+ */
+public class SnippetStagingTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@After
+	public void clean() throws IOException {
+		SnippetStaging.clean(new File(this.temp.getRoot(), "staging"));
+	}
+
+	@Test
+	public void stagedSnippetsAreMergedIntoTheOutputDirectory() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stage(staging, "one/request.adoc", "alpha");
+		stage(staging, "two/request.adoc", "bravo");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "one/request.adoc")), is(equalTo("alpha")));
+		assertThat(read(new File(output, "two/request.adoc")), is(equalTo("bravo")));
+		assertFalse(staging.exists());
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippets"))));
+	}
+
+	@Test
+	public void lastSnippetStagedAtAPathIsMerged() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stage(staging, "request.adoc", "alpha");
+		stage(staging, "request.adoc", "bravo");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "request.adoc")), is(equalTo("bravo")));
+	}
+
+	@Test
+	public void snippetsStagedByDifferentJvmsAreMerged() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stageByFork(staging, "a", "one/request.adoc", "alpha");
+		stageByFork(staging, "a", "shared.adoc", "charlie");
+		stageByFork(staging, "b", "two/request.adoc", "bravo");
+		stageByFork(staging, "b", "shared.adoc", "charlie");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "one/request.adoc")), is(equalTo("alpha")));
+		assertThat(read(new File(output, "two/request.adoc")), is(equalTo("bravo")));
+		assertThat(read(new File(output, "shared.adoc")), is(equalTo("charlie")));
+		assertThat(
+				read(new File(output, SnippetStaging.MERGED_MANIFEST_NAME)),
+				is(equalTo(String.format("%08x a one/request.adoc\n%08x a shared.adoc\n"
+						+ "%08x b two/request.adoc\n", checksum("alpha"),
+						checksum("charlie"), checksum("bravo")))));
+	}
+
+	@Test
+	public void conflictingSnippetsFromDifferentJvms() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stageByFork(staging, "a", "request.adoc", "alpha");
+		stageByFork(staging, "b", "request.adoc", "bravo");
+		try {
+			SnippetStaging.merge(staging, output);
+			fail("Merge should have failed");
+		}
+		catch (IllegalStateException ex) {
+			assertThat(ex.getMessage(), is(equalTo("Snippet 'request.adoc' has been "
+					+ "written with different content by 'a' and 'b'")));
+		}
+		assertFalse(output.exists());
+		assertTrue(new File(staging, "a/request.adoc").isFile());
+	}
+
+	@Test
+	public void outputDirectoryWithFilesThatWereNotMergedIsNotReplaced()
+			throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = this.temp.newFolder("snippets");
+		File other = new File(output, "other/index.adoc");
+		other.getParentFile().mkdirs();
+		FileCopyUtils.copy("other".getBytes(UTF_8), other);
+		stage(staging, "request.adoc", "alpha");
+		try {
+			SnippetStaging.merge(staging, output);
+			fail("Merge should have failed");
+		}
+		catch (IllegalStateException ex) {
+			assertThat(ex.getMessage(), is(equalTo("Output directory '" + output
+					+ "' contains 'other/index.adoc' which was not produced by a merge")));
+		}
+		assertThat(read(other), is(equalTo("other")));
+		assertFalse(new File(output, "request.adoc").exists());
+		assertTrue(staging.isDirectory());
+	}
+
+	@Test
+	public void emptyOutputDirectoryIsReplaced() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = this.temp.newFolder("snippets");
+		stage(staging, "request.adoc", "alpha");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "request.adoc")), is(equalTo("alpha")));
+		assertThat(Arrays.asList(this.temp.getRoot().list()),
+				is(equalTo(Arrays.asList("snippets"))));
+	}
+
+	@Test
+	public void failedMergeLeavesTheOutputDirectoryUntouched() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stage(staging, "existing.adoc", "existing");
+		SnippetStaging.merge(staging, output);
+		stageByFork(staging, "a", "request.adoc", "alpha");
+		assertTrue(new File(staging, "a/request.adoc").delete());
+		try {
+			SnippetStaging.merge(staging, output);
+			fail("Merge should have failed");
+		}
+		catch (IOException ex) {
+			assertThat(ex.getMessage(),
+					is(equalTo("Snippet 'request.adoc' staged by 'a' is missing")));
+		}
+		assertThat(read(new File(output, "existing.adoc")), is(equalTo("existing")));
+		assertFalse(new File(output, "request.adoc").exists());
+		assertThat(Arrays.asList(this.temp.getRoot().list()).size(), is(2));
+	}
+
+	@Test
+	public void snippetsStagedBeforeACleanAreNotMerged() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stageByFork(staging, "earlier", "request.adoc", "alpha");
+		SnippetStaging.clean(staging);
+		assertFalse(staging.exists());
+		stage(staging, "request.adoc", "bravo");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "request.adoc")), is(equalTo("bravo")));
+	}
+
+	@Test
+	public void snippetsLeftBehindByAnEarlierJvmWithTheSameIdentifierAreDiscarded()
+			throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stageByFork(staging, PartFiles.forkId(), "stale.adoc", "stale");
+		stage(staging, "request.adoc", "alpha");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "request.adoc")), is(equalTo("alpha")));
+		assertFalse(new File(output, "stale.adoc").exists());
+	}
+
+	@Test
+	public void snippetThatDoesNotMatchItsManifest() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		stageByFork(staging, "a", "request.adoc", "alpha");
+		FileCopyUtils.copy("bravo".getBytes(UTF_8), new File(staging, "a/request.adoc"));
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Snippet 'request.adoc' staged by 'a' does not match "
+				+ "its manifest");
+		SnippetStaging.merge(staging, new File(this.temp.getRoot(), "snippets"));
+	}
+
+	@Test
+	public void snippetOutsideOfTheStagingDirectory() throws IOException {
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("is outside of the staging directory");
+		stage(new File(this.temp.getRoot(), "staging"), "../request.adoc", "alpha");
+	}
+
+	@Test
+	public void mergeWithoutAnyManifests() throws IOException {
+		this.thrown.expect(IOException.class);
+		SnippetStaging.merge(this.temp.newFolder("staging"),
+				new File(this.temp.getRoot(), "snippets"));
+	}
+
+	@Test
+	public void snippetsCanBeStagedAgainAfterAMerge() throws IOException {
+		File staging = new File(this.temp.getRoot(), "staging");
+		File output = new File(this.temp.getRoot(), "snippets");
+		stage(staging, "one.adoc", "alpha");
+		SnippetStaging.merge(staging, output);
+		stage(staging, "two.adoc", "bravo");
+		SnippetStaging.merge(staging, output);
+		assertThat(read(new File(output, "two.adoc")), is(equalTo("bravo")));
+		assertFalse(new File(output, "one.adoc").exists());
+	}
+
+	private void stage(File staging, String path, String content) throws IOException {
+		SnippetBuffer buffer = SnippetBuffer.acquire();
+		try {
+			buffer.write(content);
+			SnippetStaging.stage(staging, path, buffer, UTF_8);
+		}
+		finally {
+			buffer.release();
+		}
+	}
+
+	private void stageByFork(File staging, String fork, String path, String content)
+			throws IOException {
+		File file = new File(new File(staging, fork), path);
+		file.getParentFile().mkdirs();
+		FileCopyUtils.copy(content.getBytes(UTF_8), file);
+		File manifest = new File(staging, fork + ".manifest");
+		String entries = manifest.isFile() ? read(manifest) : "";
+		FileCopyUtils.copy(
+				(entries + String.format("%08x %s\n", checksum(content), path))
+						.getBytes(UTF_8), manifest);
+	}
+
+	private long checksum(String content) {
+		CRC32 checksum = new CRC32();
+		checksum.update(content.getBytes(UTF_8));
+		return checksum.getValue();
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Tests for {@link ContentSnapshot}
+ *
+ * @author Andy Wilkinson
+ */
+public class ContentSnapshotTests {
+
+	@Test
+	public void requestContentIsDecodedUsingItsCharacterEncoding() throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContent("caf\u00e9".getBytes("UTF-8"));
+		request.setCharacterEncoding("UTF-8");
+		ContentSnapshot content = ContentSnapshot.of(request);
+		assertThat(content.getLength(), is(equalTo(5)));
+		assertThat(content.toString(), is(equalTo("caf\u00e9")));
+		assertThat(FileCopyUtils.copyToString(content.getReader()),
+				is(equalTo("caf\u00e9")));
+	}
+
+	@Test
+	public void requestContentWithoutACharacterEncodingIsDecodedLikeItsReader()
+			throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContent("{\"name\":\"caf\u00e9\"}".getBytes("UTF-8"));
+		ContentSnapshot content = ContentSnapshot.of(request);
+		assertThat(content.getCharset(), is(equalTo(Charset.defaultCharset())));
+		assertThat(content.toString(),
+				is(equalTo(FileCopyUtils.copyToString(request.getReader()))));
+	}
+
+	@Test
+	public void utf8RequestContentWithoutACharacterEncodingOnAUtf8Platform()
+			throws IOException {
+		assumeThat(Charset.defaultCharset(), is(equalTo(Charset.forName("UTF-8"))));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContent("{\"name\":\"caf\u00e9\"}".getBytes("UTF-8"));
+		assertThat(ContentSnapshot.of(request).toString(),
+				is(equalTo("{\"name\":\"caf\u00e9\"}")));
+	}
+
+	@Test
+	public void responseContentWithoutACharacterEncodingIsDecodedAsIso88591()
+			throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.getOutputStream().write("caf\u00e9".getBytes("ISO-8859-1"));
+		ContentSnapshot content = ContentSnapshot.of(response);
+		assertThat(content.getCharset(), is(equalTo(Charset.forName("ISO-8859-1"))));
+		assertThat(content.toString(), is(equalTo(response.getContentAsString())));
+	}
+
+	@Test
+	public void requestWithNoContent() throws IOException {
+		ContentSnapshot content = ContentSnapshot.of(new MockHttpServletRequest());
+		assertThat(content.getLength(), is(equalTo(0)));
+		assertThat(content.toString(), is(equalTo("")));
+	}
+
+	@Test
+	public void responseContent() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.getWriter().print("alpha");
+		ContentSnapshot content = ContentSnapshot.of(response);
+		assertThat(content.toString(), is(equalTo("alpha")));
+		assertThat(FileCopyUtils.copyToByteArray(content.getInputStream()),
+				is(equalTo("alpha".getBytes())));
+	}
+
+	@Test
+	public void byteBufferViewIsReadOnly() throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContent("alpha".getBytes());
+		ByteBuffer buffer = ContentSnapshot.of(request).asByteBuffer();
+		assertThat(buffer.isReadOnly(), is(true));
+		assertThat(buffer.remaining(), is(equalTo(5)));
+	}
+
+}
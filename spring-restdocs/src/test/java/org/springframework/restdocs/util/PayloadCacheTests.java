@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.restdocs.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.restdocs.StubMvcResult;
+
+/**
+ * Tests for {@link PayloadCache}
+ * 
+ * @author Andy Wilkinson
+ */
+public class PayloadCacheTests {
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	private final StubMvcResult result = new StubMvcResult(this.request, this.response);
+
+	public PayloadCacheTests() throws IOException {
+		this.request.setContent("{\"a\":\"alpha\"}".getBytes());
+		this.response.getWriter().print("{\"b\":\"bravo\"}");
+	}
+
+	@Test
+	public void payloadsAreParsedOnEachCallOutsideOfAScope() throws IOException {
+		assertThat(PayloadCache.getJsonContent(this.request),
+				is(not(sameInstance(PayloadCache.getJsonContent(this.request)))));
+		assertThat(PayloadCache.getJsonContent(this.response),
+				is(not(sameInstance(PayloadCache.getJsonContent(this.response)))));
+	}
+
+	@Test
+	public void payloadsAreParsedOnceWithinAScope() throws IOException {
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		try {
+			assertThat(PayloadCache.getJsonContent(this.request),
+					is(sameInstance(PayloadCache.getJsonContent(this.request))));
+			assertThat(PayloadCache.getJsonContent(this.response),
+					is(sameInstance(PayloadCache.getJsonContent(this.response))));
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+	}
+
+	@Test
+	public void contentIsCapturedOnceWithinAScope() throws IOException {
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		try {
+			assertThat(PayloadCache.getContent(this.request),
+					is(sameInstance(PayloadCache.getContent(this.request))));
+			assertThat(PayloadCache.getContent(this.response),
+					is(sameInstance(PayloadCache.getContent(this.response))));
+			assertThat(PayloadCache.getContent(this.request).toString(),
+					is(equalTo("{\"a\":\"alpha\"}")));
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+	}
+
+	@Test
+	public void requestAndResponsePayloadsAreCachedSeparately() throws IOException {
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		try {
+			assertThat(PayloadCache.getJsonContent(this.request),
+					is(equalTo(Collections.<String, Object> singletonMap("a", "alpha"))));
+			assertThat(PayloadCache.getJsonContent(this.response),
+					is(equalTo(Collections.<String, Object> singletonMap("b", "bravo"))));
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+	}
+
+	@Test
+	public void nestedScopesShareTheCachedPayload() throws IOException {
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		try {
+			Object payload = PayloadCache.getJsonContent(this.response);
+			PayloadCache.begin(this.result, JsonSupport.getDefault());
+			PayloadCache.end(this.result);
+			assertThat(PayloadCache.getJsonContent(this.response),
+					is(sameInstance(payload)));
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+	}
+
+	@Test
+	public void cachedPayloadsAreDiscardedWhenTheScopeEnds() throws IOException {
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		Object payload;
+		try {
+			payload = PayloadCache.getJsonContent(this.response);
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+		PayloadCache.begin(this.result, JsonSupport.getDefault());
+		try {
+			assertThat(PayloadCache.getJsonContent(this.response),
+					is(not(sameInstance(payload))));
+		}
+		finally {
+			PayloadCache.end(this.result);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.restdocs.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Tests for {@link VirtualThreads}.
+ *
+ * @author Andy Wilkinson
+ */
+public class VirtualThreadsTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void availabilityMatchesJavaVersion() {
+		String version = System.getProperty("java.specification.version");
+		boolean java21OrLater = !version.startsWith("1.")
+				&& Integer.parseInt(version) >= 21;
+		assertThat(VirtualThreads.isAvailable(), is(equalTo(java21OrLater)));
+	}
+
+	@Test
+	public void tasksRunOnVirtualThreads() throws Exception {
+		assumeTrue(VirtualThreads.isAvailable());
+		final Method isVirtual = ReflectionUtils.findMethod(Thread.class, "isVirtual");
+		ExecutorService executor = VirtualThreads.newExecutor();
+		try {
+			Boolean virtual = executor.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() {
+					return (Boolean) ReflectionUtils.invokeMethod(isVirtual,
+							Thread.currentThread());
+				}
+
+			}).get();
+			assertThat(virtual, is(true));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void platformThreadIsNotVirtual() {
+		assertThat(VirtualThreads.isVirtual(Thread.currentThread()), is(false));
+	}
+
+	@Test
+	public void executorThreadsAreVirtual() throws Exception {
+		assumeTrue(VirtualThreads.isAvailable());
+		ExecutorService executor = VirtualThreads.newExecutor();
+		try {
+			Boolean virtual = executor.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() {
+					return VirtualThreads.isVirtual(Thread.currentThread());
+				}
+
+			}).get();
+			assertThat(virtual, is(true));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void executorCannotBeCreatedWhenVirtualThreadsAreNotAvailable() {
+		assumeFalse(VirtualThreads.isAvailable());
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("Virtual threads require Java 21 or later");
+		VirtualThreads.newExecutor();
+	}
+
+}